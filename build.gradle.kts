@@ -29,6 +29,10 @@ dependencies {
 	
 	// GitHub API Client
 	implementation("org.kohsuke:github-api:1.316")
+	implementation("com.squareup.okhttp3:okhttp:4.12.0")
+
+	// In-memory cache of live GitHub reads
+	implementation("com.github.ben-manes.caffeine:caffeine")
 
 	// Environment variable loading from .env files
 	implementation("me.paulschwarz:spring-dotenv:4.0.0")
@@ -45,3 +49,21 @@ dependencies {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("benchmark")
+	}
+}
+
+// Benchmarks are tagged "benchmark" and only run with ./gradlew benchmark
+tasks.register<Test>("benchmark") {
+	description = "Runs the benchmarks."
+	group = "verification"
+	testClassesDirs = sourceSets["test"].output.classesDirs
+	classpath = sourceSets["test"].runtimeClasspath
+	useJUnitPlatform {
+		includeTags("benchmark")
+	}
+	testLogging.showStandardStreams = true
+}
@@ -0,0 +1,130 @@
+package com.saas.app.config;
+
+import com.saas.app.util.ConditionalRequestTracker;
+import com.saas.app.util.GitHubCircuitBreaker;
+import com.saas.app.util.GitHubTokenPool;
+import com.saas.app.util.RequestPacer;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Configuration
+public class GitHubClientConfig {
+
+    @Bean
+    public ConditionalRequestTracker conditionalRequestTracker() {
+        return new ConditionalRequestTracker();
+    }
+
+    @Bean
+    public GitHubTokenPool gitHubTokenPool(@Value("${app.github.tokens:}") List<String> tokens) {
+        return new GitHubTokenPool(tokens);
+    }
+
+    @Bean
+    public RequestPacer requestPacer(
+            @Value("${app.github.requests-per-second:10}") double requestsPerSecond,
+            @Value("${app.github.request-burst:20}") int burst) {
+        return new RequestPacer(requestsPerSecond, burst);
+    }
+
+    @Bean
+    public GitHubCircuitBreaker gitHubCircuitBreaker(
+            @Value("${app.github.breaker-server-errors:3}") int serverErrorThreshold,
+            @Value("${app.github.breaker-pause-seconds:60}") long pauseSeconds,
+            @Value("${app.github.breaker-max-pause-minutes:30}") long maxPauseMinutes) {
+        return new GitHubCircuitBreaker(serverErrorThreshold,
+                Duration.ofSeconds(pauseSeconds), Duration.ofMinutes(maxPauseMinutes));
+    }
+
+    /**
+     * Shared HTTP client used for every call to the GitHub API.
+     * Connections are pooled and kept alive between calls, and HTTP/2 is
+     * negotiated when the server supports it. Responses are kept in a disk
+     * cache so that repeated requests are sent as conditional requests using
+     * the stored ETag / Last-Modified of each URL. Requests are paced by a
+     * token bucket before they take a connection.
+     */
+    @Bean
+    @Primary
+    public OkHttpClient gitHubHttpClient(
+            ConditionalRequestTracker conditionalRequestTracker,
+            GitHubTokenPool tokenPool,
+            RequestPacer requestPacer,
+            GitHubCircuitBreaker circuitBreaker,
+            @Value("${app.github.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+            @Value("${app.github.read-timeout-seconds:30}") long readTimeoutSeconds,
+            @Value("${app.github.max-idle-connections:20}") int maxIdleConnections,
+            @Value("${app.github.keep-alive-minutes:5}") long keepAliveMinutes,
+            @Value("${app.github.http-cache-dir:./data/http-cache}") String cacheDir,
+            @Value("${app.github.http-cache-size-mb:50}") long cacheSizeMb) {
+
+        return new OkHttpClient.Builder()
+                .cache(new Cache(new File(cacheDir), cacheSizeMb * 1024 * 1024))
+                .addInterceptor(requestPacer)
+                .addNetworkInterceptor(conditionalRequestTracker)
+                .addNetworkInterceptor(tokenPool)
+                .addNetworkInterceptor(circuitBreaker)
+                .addNetworkInterceptor(chain -> withoutAuthorizationVary(chain.proceed(chain.request())))
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMinutes, TimeUnit.MINUTES))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .readTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                .build();
+    }
+
+    /**
+     * HTTP client for the scheduler's activity polling. It shares the
+     * connections and interceptors of the main client but has a cache of its
+     * own. Live reads request the same listings, and a 200 they got would
+     * otherwise replace the ETag the poller stored. The poller's next
+     * conditional request would then be answered 304 and the new items would
+     * never be noticed. Polling pays the request pacer up front, before its
+     * category deadline starts, so the pacer is not applied again per request.
+     */
+    @Bean
+    public OkHttpClient gitHubPollingHttpClient(
+            @Qualifier("gitHubHttpClient") OkHttpClient gitHubHttpClient,
+            RequestPacer requestPacer,
+            @Value("${app.github.polling-cache-dir:${app.github.http-cache-dir:./data/http-cache}-polling}") String cacheDir,
+            @Value("${app.github.http-cache-size-mb:50}") long cacheSizeMb) {
+
+        OkHttpClient.Builder builder = gitHubHttpClient.newBuilder()
+                .cache(new Cache(new File(cacheDir), cacheSizeMb * 1024 * 1024));
+        builder.interceptors().remove(requestPacer);
+        return builder.build();
+    }
+
+    /**
+     * Cached responses are shared by all tokens of the pool, so they must
+     * not vary by credential; otherwise switching tokens would discard the
+     * stored ETag and turn every conditional request into a full one.
+     */
+    private static Response withoutAuthorizationVary(Response response) {
+        List<String> vary = response.headers("Vary").stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty() && !value.equalsIgnoreCase("Authorization"))
+                .collect(Collectors.toList());
+
+        Response.Builder builder = response.newBuilder().removeHeader("Vary");
+        if (!vary.isEmpty()) {
+            builder.header("Vary", String.join(", ", vary));
+        }
+        return builder.build();
+    }
+}
@@ -1,5 +1,7 @@
 package com.saas.app.controller;
 
+import com.saas.app.service.ActivityCache;
+import com.saas.app.service.ActivityService;
 import com.saas.app.service.GitHubService;
 import com.saas.app.util.GitHubErrorHandler;
 import org.slf4j.Logger;
@@ -15,10 +17,16 @@ public class GitHubActivityController {
     private static final Logger logger = LoggerFactory.getLogger(GitHubActivityController.class);
     
     private final GitHubService gitHubService;
+    private final ActivityService activityService;
+    private final ActivityCache activityCache;
 
     @Autowired
-    public GitHubActivityController(GitHubService gitHubService) {
+    public GitHubActivityController(GitHubService gitHubService,
+                                    ActivityService activityService,
+                                    ActivityCache activityCache) {
         this.gitHubService = gitHubService;
+        this.activityService = activityService;
+        this.activityCache = activityCache;
     }
     
     @GetMapping("/activities/{owner}/{repo}")
@@ -29,7 +37,7 @@ public class GitHubActivityController {
         
         logger.info("Fetching GitHub activities for {}/{} with limit {}", owner, repo, limit);
         return GitHubErrorHandler.executeWithErrorHandling(
-                () -> gitHubService.getRepositoryActivities(owner, repo, limit),
+                () -> activityService.getRepositoryActivities(owner, repo, limit),
                 "activities",
                 logger
         );
@@ -39,11 +47,15 @@ public class GitHubActivityController {
     public ResponseEntity<?> getCommits(
             @PathVariable String owner,
             @PathVariable String repo,
-            @RequestParam(defaultValue = "30") int limit) {
+            @RequestParam(defaultValue = "30") int limit,
+            @RequestParam(defaultValue = "false") boolean enrichAuthors) {
         
         logger.info("Fetching GitHub commits for {}/{} with limit {}", owner, repo, limit);
         return GitHubErrorHandler.executeWithErrorHandling(
-                () -> gitHubService.getCommits(owner, repo, limit),
+                // The mirror keeps git author names only, so enriched commits are always fetched live
+                () -> enrichAuthors
+                        ? gitHubService.getCommits(owner, repo, limit, true)
+                        : activityService.getCommits(owner, repo, limit),
                 "commits",
                 logger
         );
@@ -57,7 +69,7 @@ public class GitHubActivityController {
         
         logger.info("Fetching GitHub pull requests for {}/{} with limit {}", owner, repo, limit);
         return GitHubErrorHandler.executeWithErrorHandling(
-                () -> gitHubService.getPullRequests(owner, repo, limit),
+                () -> activityService.getPullRequests(owner, repo, limit),
                 "pull requests",
                 logger
         );
@@ -71,7 +83,7 @@ public class GitHubActivityController {
         
         logger.info("Fetching GitHub issues for {}/{} with limit {}", owner, repo, limit);
         return GitHubErrorHandler.executeWithErrorHandling(
-                () -> gitHubService.getIssues(owner, repo, limit),
+                () -> activityService.getIssues(owner, repo, limit),
                 "issues",
                 logger
         );
@@ -85,9 +97,14 @@ public class GitHubActivityController {
         
         logger.info("Fetching GitHub releases for {}/{} with limit {}", owner, repo, limit);
         return GitHubErrorHandler.executeWithErrorHandling(
-                () -> gitHubService.getReleases(owner, repo, limit),
+                () -> activityService.getReleases(owner, repo, limit),
                 "releases",
                 logger
         );
     }
-}
\ No newline at end of file
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(activityCache.getStats());
+    }
+}
@@ -0,0 +1,58 @@
+package com.saas.app.controller;
+
+import com.saas.app.exception.WebhookSignatureException;
+import com.saas.app.service.GitHubWebhookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/webhooks")
+public class GitHubWebhookController {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitHubWebhookController.class);
+    private final GitHubWebhookService webhookService;
+
+    @Autowired
+    public GitHubWebhookController(GitHubWebhookService webhookService) {
+        this.webhookService = webhookService;
+    }
+
+    /**
+     * Receives push, pull_request, issues and release deliveries from GitHub
+     * The body is read as raw bytes because the signature covers it exactly
+     */
+    @PostMapping("/github")
+    public ResponseEntity<?> receive(
+            @RequestHeader("X-GitHub-Event") String event,
+            @RequestHeader(value = "X-GitHub-Delivery", required = false) String deliveryId,
+            @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+            @RequestBody byte[] payload) {
+
+        try {
+            logger.info("Received GitHub {} webhook delivery {}", event, deliveryId);
+            int activities = webhookService.handle(event, signature, payload);
+            return ResponseEntity.ok(Map.of("event", event, "activities", activities));
+        } catch (WebhookSignatureException e) {
+            logger.warn("Rejected webhook delivery {}: {}", deliveryId, e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid webhook delivery {}: {}", deliveryId, e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Unexpected error handling webhook delivery {}", deliveryId, e);
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "An unexpected error occurred"));
+        }
+    }
+}
@@ -9,11 +9,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -36,9 +38,10 @@ public class NotificationController {
             @RequestParam(defaultValue = "20") int size) {
         
         logger.info("Getting notifications for user {} (page={}, size={})", email, page, size);
+        // Ordered by latest activity, so a notification with fresh coalesced events comes first
         Page<RepoNotification> notifications = notificationService.getUserNotifications(
                 email, 
-                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+                PageRequest.of(page, size));
         
         return ResponseEntity.ok(notifications);
     }
@@ -53,6 +56,22 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    /**
+     * Gets the number of unread notifications, e.g. for a badge. The ETag
+     * changes with the count, so polling clients that send If-None-Match get
+     * a 304 while it stays the same.
+     */
+    @GetMapping("/unread/count")
+    public ResponseEntity<Map<String, Long>> getUnreadCount(
+            @RequestParam @Email @NotBlank String email) {
+        
+        long count = notificationService.getUnreadCount(email);
+        return ResponseEntity.ok()
+                .eTag(Long.toString(count))
+                .cacheControl(CacheControl.noCache())
+                .body(Map.of("unread", count));
+    }
+
     @PatchMapping("/{id}/read")
     public ResponseEntity<?> markAsRead(
             @PathVariable @Positive Long id,
@@ -68,6 +87,35 @@ public class NotificationController {
         }
     }
 
+    @PatchMapping("/read")
+    public ResponseEntity<Map<String, ?>> markManyAsRead(
+            @RequestParam @Email @NotBlank String email,
+            @RequestParam List<Long> ids) {
+        
+        logger.info("Marking {} notifications as read for user {}", ids.size(), email);
+        try {
+            int count = notificationService.markAsRead(email, ids);
+            return ResponseEntity.ok(Map.of("markedAsRead", count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PatchMapping("/read-before")
+    public ResponseEntity<Map<String, ?>> markAsReadBefore(
+            @RequestParam @Email @NotBlank String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime before,
+            @RequestParam(required = false) Long cursor) {
+        
+        logger.info("Marking notifications before {} / up to {} as read for user {}", before, cursor, email);
+        try {
+            int count = notificationService.markAsReadUpTo(email, before, cursor);
+            return ResponseEntity.ok(Map.of("markedAsRead", count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PatchMapping("/read-all")
     public ResponseEntity<Map<String, Integer>> markAllAsRead(
             @RequestParam @Email @NotBlank String email) {
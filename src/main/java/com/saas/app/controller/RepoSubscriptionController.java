@@ -1,7 +1,9 @@
 package com.saas.app.controller;
 
 import com.saas.app.exception.SubscriptionException;
+import com.saas.app.model.OrgSubscription;
 import com.saas.app.model.RepoSubscription;
+import com.saas.app.service.OrgSubscriptionService;
 import com.saas.app.service.RepoSubscriptionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
 
+import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 
 @RestController
@@ -21,24 +24,32 @@ public class RepoSubscriptionController {
 
     private static final Logger logger = LoggerFactory.getLogger(RepoSubscriptionController.class);
     private final RepoSubscriptionService subscriptionService;
+    private final OrgSubscriptionService orgSubscriptionService;
 
     @Autowired
-    public RepoSubscriptionController(RepoSubscriptionService subscriptionService) {
+    public RepoSubscriptionController(RepoSubscriptionService subscriptionService,
+                                      OrgSubscriptionService orgSubscriptionService) {
         this.subscriptionService = subscriptionService;
+        this.orgSubscriptionService = orgSubscriptionService;
     }
 
     /**
      * Subscribe to a repository's activity
      * Uses path variables for repository info and email as a request parameter
+     * A repository of "*" subscribes to every repository of the organization
      */
     @PostMapping("/repository/{owner}/{repo}")
     public ResponseEntity<?> subscribeToRepository(
             @PathVariable @NotBlank(message = "Owner name is required") String owner,
             @PathVariable @NotBlank(message = "Repository name is required") String repo,
-            @RequestParam @jakarta.validation.constraints.Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
+            @RequestParam @Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
 
         try {
             logger.info("Subscribing {} to repository {}/{}", email, owner, repo);
+            if (OrgSubscriptionService.isWildcard(repo)) {
+                OrgSubscription subscription = orgSubscriptionService.subscribe(email, owner);
+                return ResponseEntity.ok(subscription);
+            }
             RepoSubscription subscription = subscriptionService.subscribe(email, owner, repo);
             return ResponseEntity.ok(subscription);
         } catch (IllegalArgumentException e) {
@@ -67,11 +78,15 @@ public class RepoSubscriptionController {
     public ResponseEntity<?> unsubscribeFromRepository(
             @PathVariable String owner,
             @PathVariable String repo,
-            @RequestParam @jakarta.validation.constraints.Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
+            @RequestParam @Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
 
         try {
             logger.info("Unsubscribing {} from repository {}/{}", email, owner, repo);
-            subscriptionService.unsubscribe(email, owner, repo);
+            if (OrgSubscriptionService.isWildcard(repo)) {
+                orgSubscriptionService.unsubscribe(email, owner);
+            } else {
+                subscriptionService.unsubscribe(email, owner, repo);
+            }
             return ResponseEntity.ok(Map.of("message", "Successfully unsubscribed from " + owner + "/" + repo));
         } catch (SubscriptionException e) {
             logger.warn("Unsubscription error: {}", e.getMessage());
@@ -88,7 +103,7 @@ public class RepoSubscriptionController {
 
     @GetMapping("/repository")
     public ResponseEntity<?> getUserSubscriptions(
-            @RequestParam @jakarta.validation.constraints.Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
+            @RequestParam @Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
         try {
             logger.info("Fetching subscriptions for user {}", email);
             List<RepoSubscription> subscriptions = subscriptionService.getUserSubscriptions(email);
@@ -106,6 +121,26 @@ public class RepoSubscriptionController {
         }
     }
 
+    @GetMapping("/organization")
+    public ResponseEntity<?> getUserOrganizationSubscriptions(
+            @RequestParam @Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
+        try {
+            logger.info("Fetching organization subscriptions for user {}", email);
+            List<OrgSubscription> subscriptions = orgSubscriptionService.getUserSubscriptions(email);
+            return ResponseEntity.ok(subscriptions);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid email address: {}", e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Unexpected error fetching user organization subscriptions", e);
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "An unexpected error occurred"));
+        }
+    }
+
     @GetMapping("/repository/{owner}/{repo}")
     public ResponseEntity<?> getRepositorySubscriptions(
             @PathVariable String owner,
@@ -113,6 +148,10 @@ public class RepoSubscriptionController {
 
         try {
             logger.info("Fetching subscriptions for repository {}/{}", owner, repo);
+            if (OrgSubscriptionService.isWildcard(repo)) {
+                List<OrgSubscription> subscriptions = orgSubscriptionService.getOrganizationSubscriptions(owner);
+                return ResponseEntity.ok(subscriptions);
+            }
             List<RepoSubscription> subscriptions = subscriptionService.getRepositorySubscriptions(owner, repo);
             return ResponseEntity.ok(subscriptions);
         } catch (Exception e) {
@@ -127,10 +166,14 @@ public class RepoSubscriptionController {
     public ResponseEntity<?> enableNotifications(
             @PathVariable String owner,
             @PathVariable String repo,
-            @RequestParam @jakarta.validation.constraints.Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
+            @RequestParam @Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
 
         try {
             logger.info("Enabling notifications for {} on repository {}/{}", email, owner, repo);
+            if (OrgSubscriptionService.isWildcard(repo)) {
+                OrgSubscription subscription = orgSubscriptionService.updateNotificationStatus(email, owner, true);
+                return ResponseEntity.ok(subscription);
+            }
             RepoSubscription subscription = subscriptionService.updateNotificationStatus(email, owner, repo, true);
             return ResponseEntity.ok(subscription);
         } catch (SubscriptionException e) {
@@ -150,10 +193,14 @@ public class RepoSubscriptionController {
     public ResponseEntity<?> disableNotifications(
             @PathVariable String owner,
             @PathVariable String repo,
-            @RequestParam @jakarta.validation.constraints.Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
+            @RequestParam @Email(message = "Invalid email format") @NotBlank(message = "Email is required") String email) {
 
         try {
             logger.info("Disabling notifications for {} on repository {}/{}", email, owner, repo);
+            if (OrgSubscriptionService.isWildcard(repo)) {
+                OrgSubscription subscription = orgSubscriptionService.updateNotificationStatus(email, owner, false);
+                return ResponseEntity.ok(subscription);
+            }
             RepoSubscription subscription = subscriptionService.updateNotificationStatus(email, owner, repo, false);
             return ResponseEntity.ok(subscription);
         } catch (SubscriptionException e) {
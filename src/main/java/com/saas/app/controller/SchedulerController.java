@@ -0,0 +1,90 @@
+package com.saas.app.controller;
+
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.SchedulerRun;
+import com.saas.app.service.RepoService;
+import com.saas.app.service.SchedulerRunService;
+import com.saas.app.util.GitHubCircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/scheduler")
+public class SchedulerController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerController.class);
+
+    private final SchedulerRunService runService;
+    private final RepoService repoService;
+    private final GitHubCircuitBreaker circuitBreaker;
+
+    @Autowired
+    public SchedulerController(SchedulerRunService runService,
+                               RepoService repoService,
+                               GitHubCircuitBreaker circuitBreaker) {
+        this.runService = runService;
+        this.repoService = repoService;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @GetMapping("/runs")
+    public ResponseEntity<Page<SchedulerRun>> getRuns(
+            @RequestParam(required = false) String task,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        logger.info("Getting scheduler runs (task={}, page={}, size={})", task, page, size);
+        Page<SchedulerRun> runs = runService.getRuns(
+                task,
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "startedAt")));
+
+        return ResponseEntity.ok(runs);
+    }
+
+    /**
+     * Lists the state of the global circuit breaker and every repository
+     * whose circuit is open (not checked until openUntil) or half-open (the
+     * next check is a trial)
+     */
+    @GetMapping("/circuits")
+    public ResponseEntity<Map<String, Object>> getCircuits() {
+        logger.info("Getting circuit breaker state");
+
+        Map<String, Object> github = new LinkedHashMap<>();
+        github.put("open", circuitBreaker.isOpen());
+        github.put("openUntil", circuitBreaker.getOpenUntil());
+        github.put("reason", circuitBreaker.getReason());
+
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Map<String, Object>> repositories = new ArrayList<>();
+        for (GitHubRepository repository : repoService.getTrippedRepositories()) {
+            Map<String, Object> circuit = new LinkedHashMap<>();
+            circuit.put("owner", repository.getOwner());
+            circuit.put("name", repository.getName());
+            circuit.put("state", repository.getCircuitOpenUntil() != null && repository.getCircuitOpenUntil().isAfter(now)
+                    ? "open" : "half_open");
+            circuit.put("failureCount", repository.getFailureCount());
+            circuit.put("openUntil", repository.getCircuitOpenUntil());
+            circuit.put("lastFailureAt", repository.getLastFailureAt());
+            circuit.put("lastError", repository.getLastError());
+            repositories.add(circuit);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("github", github);
+        result.put("repositories", repositories);
+        return ResponseEntity.ok(result);
+    }
+}
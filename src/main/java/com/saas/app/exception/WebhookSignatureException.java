@@ -0,0 +1,8 @@
+package com.saas.app.exception;
+
+public class WebhookSignatureException extends RuntimeException {
+    
+    public WebhookSignatureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,90 @@
+package com.saas.app.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Newest item seen in each activity category of a repository.
+ * Polling only asks GitHub for items beyond these marks.
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityWatermarks {
+
+    @Column(name = "watermark_commit_sha")
+    private String commitSha;
+
+    @Column(name = "watermark_commit_at")
+    private ZonedDateTime commitAt;
+
+    @Column(name = "watermark_pull_request_number")
+    private Integer pullRequestNumber;
+
+    @Column(name = "watermark_issue_number")
+    private Integer issueNumber;
+
+    @Column(name = "watermark_release_id")
+    private Long releaseId;
+
+    // Newest entry of the repository events feed, used by the events detection mode
+    @Column(name = "watermark_event_id")
+    private Long eventId;
+
+    /**
+     * Checks if any category has been seen yet
+     */
+    public boolean hasAny() {
+        return commitSha != null || pullRequestNumber != null || issueNumber != null || releaseId != null;
+    }
+
+    /**
+     * Creates a detached copy of these watermarks
+     */
+    public ActivityWatermarks copy() {
+        return new ActivityWatermarks(commitSha, commitAt, pullRequestNumber, issueNumber, releaseId, eventId);
+    }
+
+    /**
+     * Moves each mark forward to the other instance's, where that one is
+     * further along
+     */
+    public void advanceTo(ActivityWatermarks other) {
+        if (other.commitSha != null
+                && (commitAt == null || (other.commitAt != null && other.commitAt.isAfter(commitAt)))) {
+            this.commitSha = other.commitSha;
+            this.commitAt = other.commitAt;
+        }
+        this.pullRequestNumber = newer(pullRequestNumber, other.pullRequestNumber);
+        this.issueNumber = newer(issueNumber, other.issueNumber);
+        this.releaseId = newer(releaseId, other.releaseId);
+        this.eventId = newer(eventId, other.eventId);
+    }
+
+    private static <T extends Comparable<T>> T newer(T mark, T other) {
+        if (mark == null) {
+            return other;
+        }
+        return other != null && other.compareTo(mark) > 0 ? other : mark;
+    }
+
+    /**
+     * Replaces these watermarks with the values of another instance
+     */
+    public void copyFrom(ActivityWatermarks other) {
+        this.commitSha = other.commitSha;
+        this.commitAt = other.commitAt;
+        this.pullRequestNumber = other.pullRequestNumber;
+        this.issueNumber = other.issueNumber;
+        this.releaseId = other.releaseId;
+        this.eventId = other.eventId;
+    }
+}
@@ -0,0 +1,41 @@
+package com.saas.app.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Merged activity of a repository. When some categories could not be fetched
+ * in time the feed is marked as partial and lists the missing categories.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GitHubActivityFeed {
+    private List<GitHubActivity> activities;
+    private boolean partial;
+    private List<String> missingCategories;
+
+    // Categories answered 304 Not Modified, which contribute no items although GitHub has some
+    @JsonIgnore
+    private List<String> notModifiedCategories = List.of();
+
+    public GitHubActivityFeed(List<GitHubActivity> activities, boolean partial, List<String> missingCategories) {
+        this.activities = activities;
+        this.partial = partial;
+        this.missingCategories = missingCategories;
+    }
+
+    /**
+     * Checks if every category was fetched and answered with a full page
+     */
+    @JsonIgnore
+    public boolean isComplete() {
+        return !partial && (notModifiedCategories == null || notModifiedCategories.isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package com.saas.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "organizations", 
+       uniqueConstraints = @UniqueConstraint(columnNames = {"login"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GitHubOrganization {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String login;
+    
+    @Column(name = "last_checked_at")
+    private ZonedDateTime lastCheckedAt;
+    
+    /**
+     * Newest entry of the organization events feed that has been routed
+     * to subscribers, or null before the first check
+     */
+    @Column(name = "watermark_event_id")
+    private Long eventWatermark;
+    
+    /**
+     * Node currently holding the lease to check this organization, see {@code ShardCoordinator}
+     */
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+    
+    @Column(name = "lease_until")
+    private ZonedDateTime leaseUntil;
+    
+    public GitHubOrganization(String login) {
+        this.login = login;
+    }
+    
+    /**
+     * Updates the last checked time to now
+     */
+    public void markAsChecked() {
+        this.lastCheckedAt = ZonedDateTime.now();
+    }
+}
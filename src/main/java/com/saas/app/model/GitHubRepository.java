@@ -36,12 +36,83 @@ public class GitHubRepository {
     @Column(name = "activity_count")
     private Integer activityCount = 0;
     
+    @Embedded
+    private ActivityWatermarks watermarks = new ActivityWatermarks();
+    
+    /**
+     * Number of newest items per category guaranteed to be in the local
+     * activity mirror, or null if the mirror has not been seeded yet
+     */
+    @Column(name = "mirrored_depth")
+    private Integer mirroredDepth;
+    
+    /**
+     * Time of the last webhook delivery from GitHub, or null if the
+     * repository has no webhook and relies on polling
+     */
+    @Column(name = "last_webhook_at")
+    private ZonedDateTime lastWebhookAt;
+    
+    /**
+     * Earliest time of the next scheduled check, or null to check on the next run
+     */
+    @Column(name = "next_check_at")
+    private ZonedDateTime nextCheckAt;
+    
+    /**
+     * Number of checks in a row that found no new activity
+     */
+    @Column(name = "quiet_checks")
+    private Integer quietChecks = 0;
+    
+    /**
+     * Node currently holding the lease to check this repository, see
+     * {@code ShardCoordinator}; saving the repository after a check releases it
+     */
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+    
+    @Column(name = "lease_until")
+    private ZonedDateTime leaseUntil;
+    
+    /**
+     * Number of checks in a row that failed, e.g. because the repository was
+     * deleted or made private
+     */
+    @Column(name = "failure_count")
+    private Integer failureCount = 0;
+    
+    /**
+     * Checks are suspended until this time once too many failed in a row; the
+     * first check after it is a trial that either closes the circuit again
+     * or reopens it for longer
+     */
+    @Column(name = "circuit_open_until")
+    private ZonedDateTime circuitOpenUntil;
+    
+    @Column(name = "last_failure_at")
+    private ZonedDateTime lastFailureAt;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
     public GitHubRepository(String owner, String name) {
         this.owner = owner;
         this.name = name;
         this.lastCheckedAt = ZonedDateTime.now();
     }
     
+    /**
+     * Gets the per-category watermarks, never null. Hibernate leaves the
+     * embedded value null when all of its columns are null.
+     */
+    public ActivityWatermarks getWatermarks() {
+        if (watermarks == null) {
+            watermarks = new ActivityWatermarks();
+        }
+        return watermarks;
+    }
+    
     /**
      * Updates the last checked time to now
      */
@@ -57,6 +128,59 @@ public class GitHubRepository {
         this.activityCount++;
     }
     
+    /**
+     * Gets the number of quiet checks in a row, never null
+     */
+    public int getQuietChecks() {
+        return quietChecks != null ? quietChecks : 0;
+    }
+    
+    /**
+     * Gets the number of failed checks in a row, never null
+     */
+    public int getFailureCount() {
+        return failureCount != null ? failureCount : 0;
+    }
+    
+    /**
+     * Records a failed check
+     */
+    public void markFailure(String error) {
+        this.failureCount = getFailureCount() + 1;
+        this.lastFailureAt = ZonedDateTime.now();
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+    
+    /**
+     * Forgets earlier failed checks after a successful one
+     */
+    public void clearFailures() {
+        this.failureCount = 0;
+        this.circuitOpenUntil = null;
+        this.lastError = null;
+    }
+    
+    /**
+     * Checks if the repository is due for a scheduled check at the given time
+     */
+    public boolean isDueAt(ZonedDateTime time) {
+        return nextCheckAt == null || !nextCheckAt.isAfter(time);
+    }
+    
+    /**
+     * Records that GitHub delivered a webhook for this repository
+     */
+    public void markWebhookDelivery() {
+        this.lastWebhookAt = ZonedDateTime.now();
+    }
+    
+    /**
+     * Checks if the repository is kept up to date by webhook deliveries
+     */
+    public boolean isWebhookDriven() {
+        return lastWebhookAt != null;
+    }
+    
     /**
      * Determines if there has been new activity since a given time
      * 
@@ -0,0 +1,27 @@
+package com.saas.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of unread notifications of a user, kept in step with the
+ * notifications so the unread badge does not have to count them
+ */
+@Entity
+@Table(name = "notification_counters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationCounter {
+    
+    @Id
+    @Column(nullable = false)
+    private String email;
+    
+    @Column(nullable = false)
+    private long unread;
+}
@@ -0,0 +1,63 @@
+package com.saas.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Activity of a repository written once for all of its subscribers, used
+ * with {@code app.notifications.fan-out=read}. Each subscription keeps a
+ * read cursor; the events past it are the subscriber's unread notifications.
+ */
+@Entity
+@Table(name = "notification_events", indexes = {
+        @Index(name = "idx_notification_events_repository", columnList = "repository_id, id"),
+        @Index(name = "idx_notification_events_organization", columnList = "organization_id, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne
+    @JoinColumn(name = "repository_id", nullable = false)
+    private GitHubRepository repository;
+    
+    /**
+     * Set when the event was routed to the organization's subscribers
+     * rather than the repository's
+     */
+    @ManyToOne
+    @JoinColumn(name = "organization_id")
+    private GitHubOrganization organization;
+    
+    @Column(nullable = false)
+    private String message;
+    
+    /**
+     * When the activity happened on GitHub, if known
+     */
+    @Column(name = "occurred_at")
+    private ZonedDateTime occurredAt;
+    
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+    
+    public NotificationEvent(GitHubRepository repository, GitHubOrganization organization,
+                             String message, ZonedDateTime occurredAt) {
+        this.repository = repository;
+        this.organization = organization;
+        this.message = message;
+        this.occurredAt = occurredAt;
+        this.createdAt = ZonedDateTime.now();
+    }
+}
@@ -0,0 +1,80 @@
+package com.saas.app.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.ZonedDateTime;
+
+/**
+ * Subscription to every repository of an organization ("owner/*")
+ */
+@Entity
+@Table(name = "org_subscriptions", 
+       uniqueConstraints = @UniqueConstraint(columnNames = {"email", "organization_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrgSubscription {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank(message = "Email is required")
+    @Email(message = "Please provide a valid email address")
+    @Column(nullable = false)
+    private String email;
+    
+    @NotNull(message = "Organization is required")
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "organization_id", nullable = false)
+    private GitHubOrganization organization;
+    
+    @NotNull(message = "Subscription date is required")
+    @Column(name = "subscribed_at", nullable = false)
+    private ZonedDateTime subscribedAt;
+    
+    @Column(name = "notifications_enabled", nullable = false)
+    private boolean notificationsEnabled = true;
+    
+    @Column(name = "last_notification_at")
+    private ZonedDateTime lastNotificationAt;
+    
+    /**
+     * Id of the newest notification event the subscriber has read, or null
+     * if none; only used with {@code app.notifications.fan-out=read}
+     */
+    @Column(name = "read_cursor")
+    private Long readCursor;
+    
+    /**
+     * Id of the newest notification event the subscriber has cleared, or
+     * null if none; events up to it are no longer listed. Only used with
+     * {@code app.notifications.fan-out=read}
+     */
+    @Column(name = "cleared_cursor")
+    private Long clearedCursor;
+    
+    /**
+     * Creates a new subscription with notifications disabled by default
+     */
+    public OrgSubscription(String email, GitHubOrganization organization) {
+        this.email = email;
+        this.organization = organization;
+        this.subscribedAt = ZonedDateTime.now();
+        this.notificationsEnabled = false;
+    }
+    
+    /**
+     * Marks that notification has been sent
+     */
+    public void markNotified() {
+        this.lastNotificationAt = ZonedDateTime.now();
+    }
+}
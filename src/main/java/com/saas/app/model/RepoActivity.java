@@ -0,0 +1,68 @@
+package com.saas.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Locally mirrored GitHub activity. Each item is stored once, keyed by its URL.
+ */
+@Entity
+@Table(name = "repo_activities",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"url"}),
+       indexes = {
+           @Index(name = "idx_repo_activities_repository_created", columnList = "repository_id, created_at"),
+           @Index(name = "idx_repo_activities_repository_type_created", columnList = "repository_id, type, created_at")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepoActivity {
+    
+    private static final int MAX_TITLE_LENGTH = 1024;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne
+    @JoinColumn(name = "repository_id", nullable = false)
+    private GitHubRepository repository;
+    
+    @Column(nullable = false)
+    private String type;
+    
+    private String actor;
+    
+    @Column(length = MAX_TITLE_LENGTH)
+    private String title;
+    
+    @Column(nullable = false, length = 512)
+    private String url;
+    
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+    
+    public RepoActivity(GitHubRepository repository, GitHubActivity activity) {
+        this.repository = repository;
+        this.type = activity.getType();
+        this.actor = activity.getActor();
+        this.title = activity.getTitle() != null && activity.getTitle().length() > MAX_TITLE_LENGTH
+                ? activity.getTitle().substring(0, MAX_TITLE_LENGTH)
+                : activity.getTitle();
+        this.url = activity.getUrl();
+        this.createdAt = activity.getCreatedAt();
+    }
+    
+    /**
+     * Converts the stored row back to the API representation
+     */
+    public GitHubActivity toActivity() {
+        return new GitHubActivity(type, repository.getName(), actor, title, url, createdAt);
+    }
+}
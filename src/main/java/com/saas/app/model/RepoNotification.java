@@ -6,10 +6,16 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "repo_notifications")
+@Table(name = "repo_notifications", indexes = {
+        @Index(name = "idx_repo_notifications_email_read", columnList = "email, read"),
+        @Index(name = "idx_repo_notifications_email_repo_read", columnList = "email, repository_id, read")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,14 +39,63 @@ public class RepoNotification {
     @Column(nullable = false)
     private boolean read = false;
     
+    /**
+     * When the first activity of this notification was seen
+     */
     @Column(nullable = false)
     private ZonedDateTime createdAt;
     
+    /**
+     * Number of activity events coalesced into this notification while it was unread
+     */
+    @Column(name = "event_count")
+    private Integer eventCount = 1;
+    
+    /**
+     * When the latest activity of this notification was seen
+     */
+    @Column(name = "last_seen_at")
+    private ZonedDateTime lastSeenAt;
+    
     public RepoNotification(String email, GitHubRepository repository, String message) {
         this.email = email;
         this.repository = repository;
         this.message = message;
         this.read = false;
         this.createdAt = ZonedDateTime.now();
+        this.eventCount = 1;
+        this.lastSeenAt = this.createdAt;
+    }
+    
+    /**
+     * Gets the number of coalesced events, never null
+     */
+    public int getEventCount() {
+        return eventCount != null ? eventCount : 1;
+    }
+    
+    /**
+     * Gets when the latest activity was seen; notifications from before
+     * coalescing only have their creation time
+     */
+    public ZonedDateTime getLastSeenAt() {
+        return lastSeenAt != null ? lastSeenAt : createdAt;
+    }
+    
+    /**
+     * Gets the position of this notification for marking everything up to
+     * it as read: the time of its latest activity in microseconds since the
+     * epoch. Unlike the id it moves on when events are coalesced into the
+     * notification, so a client's cursor never covers events it has not seen.
+     */
+    public long getCursor() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, getLastSeenAt().toInstant());
+    }
+    
+    /**
+     * Turns a value of {@link #getCursor()} back into the time it stands for
+     */
+    public static ZonedDateTime cursorTime(long cursor) {
+        return Instant.EPOCH.plus(cursor, ChronoUnit.MICROS).atZone(ZoneId.systemDefault());
     }
 }
\ No newline at end of file
@@ -43,6 +43,21 @@ public class RepoSubscription {
     @Column(name = "last_notification_at")
     private ZonedDateTime lastNotificationAt;
     
+    /**
+     * Id of the newest notification event the subscriber has read, or null
+     * if none; only used with {@code app.notifications.fan-out=read}
+     */
+    @Column(name = "read_cursor")
+    private Long readCursor;
+    
+    /**
+     * Id of the newest notification event the subscriber has cleared, or
+     * null if none; events up to it are no longer listed. Only used with
+     * {@code app.notifications.fan-out=read}
+     */
+    @Column(name = "cleared_cursor")
+    private Long clearedCursor;
+    
     /**
      * Creates a new subscription with notifications disabled by default
      */
@@ -0,0 +1,37 @@
+package com.saas.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A running instance of the application that takes part in scheduled checks
+ */
+@Entity
+@Table(name = "scheduler_nodes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerNode {
+    
+    @Id
+    @Column(name = "node_id", length = 64)
+    private String nodeId;
+    
+    @Column(name = "started_at", nullable = false)
+    private ZonedDateTime startedAt;
+    
+    @Column(name = "heartbeat_at", nullable = false)
+    private ZonedDateTime heartbeatAt;
+    
+    public SchedulerNode(String nodeId) {
+        this.nodeId = nodeId;
+        this.startedAt = ZonedDateTime.now();
+        this.heartbeatAt = this.startedAt;
+    }
+}
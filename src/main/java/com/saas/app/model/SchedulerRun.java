@@ -0,0 +1,80 @@
+package com.saas.app.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * One run of a scheduled check task on one node, with what it got done
+ */
+@Entity
+@Table(name = "scheduler_runs", indexes = @Index(name = "idx_scheduler_runs_started_at", columnList = "started_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerRun {
+
+    public static final String COMPLETED = "completed";
+    public static final String DEADLINE_REACHED = "deadline_reached";
+    public static final String PAUSED = "paused";
+    public static final String FAILED = "failed";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String task;
+
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(length = 32)
+    private String status;
+
+    @Column(name = "started_at", nullable = false)
+    private ZonedDateTime startedAt;
+
+    private ZonedDateTime finishedAt;
+
+    private long durationMillis;
+
+    // Items this node claimed for the run
+    private int due;
+
+    private int checked;
+
+    private int withActivity;
+
+    private int failed;
+
+    private int timedOut;
+
+    // Items left for the next run once the cycle deadline passed
+    private int deferred;
+
+    private long upstreamRequests;
+
+    private long notModifiedResponses;
+
+    // Request counters when the run started; the run stores the difference
+    @Transient
+    @JsonIgnore
+    private long requestsAtStart;
+
+    @Transient
+    @JsonIgnore
+    private long notModifiedAtStart;
+
+    public SchedulerRun(String task, String nodeId) {
+        this.task = task;
+        this.nodeId = nodeId;
+        this.startedAt = ZonedDateTime.now();
+    }
+}
@@ -0,0 +1,86 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.NotificationCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+
+@Repository
+public interface NotificationCounterRepository extends JpaRepository<NotificationCounter, String> {
+    
+    @Modifying
+    @Query("update NotificationCounter c set c.unread = c.unread + :delta where c.email = :email")
+    int add(@Param("email") String email, @Param("delta") long delta);
+    
+    @Modifying
+    @Query("update NotificationCounter c "
+            + "set c.unread = case when c.unread > :delta then c.unread - :delta else 0 end "
+            + "where c.email = :email")
+    int subtract(@Param("email") String email, @Param("delta") long delta);
+    
+    /**
+     * Creates missing counters of the repository's subscribers that are
+     * about to be notified; must run before they are marked as notified
+     */
+    @Modifying
+    @Query("insert into NotificationCounter (email, unread) "
+            + "select s.email, 0 from RepoSubscription s "
+            + "where s.repository.id = :repositoryId and s.notificationsEnabled = true "
+            + "and (s.lastNotificationAt is null or s.lastNotificationAt < :activityAt) "
+            + "and not exists (select c.email from NotificationCounter c where c.email = s.email)")
+    int createForRepositorySubscribers(@Param("repositoryId") Long repositoryId,
+                                       @Param("activityAt") ZonedDateTime activityAt);
+    
+    /**
+     * Counts one new notification for each subscriber of the repository
+     * that is about to be notified and has no unread notification about it
+     * to coalesce into; must run before the notifications are created and
+     * the subscribers marked as notified
+     */
+    @Modifying
+    @Query("update NotificationCounter c set c.unread = c.unread + 1 "
+            + "where c.email in (select s.email from RepoSubscription s "
+            + "where s.repository.id = :repositoryId and s.notificationsEnabled = true "
+            + "and (s.lastNotificationAt is null or s.lastNotificationAt < :activityAt) "
+            + "and not exists (select n.id from RepoNotification n "
+            + "where n.email = s.email and n.repository = s.repository and n.read = false))")
+    int incrementForRepositorySubscribers(@Param("repositoryId") Long repositoryId,
+                                          @Param("activityAt") ZonedDateTime activityAt);
+    
+    @Modifying
+    @Query("insert into NotificationCounter (email, unread) "
+            + "select s.email, 0 from OrgSubscription s "
+            + "where s.organization.id = :organizationId and s.notificationsEnabled = true "
+            + "and not exists (select c.email from NotificationCounter c where c.email = s.email)")
+    int createForOrganizationSubscribers(@Param("organizationId") Long organizationId);
+    
+    @Modifying
+    @Query("update NotificationCounter c set c.unread = c.unread + 1 "
+            + "where c.email in (select s.email from OrgSubscription s "
+            + "where s.organization.id = :organizationId and s.notificationsEnabled = true "
+            + "and not exists (select n.id from RepoNotification n "
+            + "where n.email = s.email and n.repository.id = :repositoryId and n.read = false))")
+    int incrementForOrganizationSubscribers(@Param("organizationId") Long organizationId,
+                                            @Param("repositoryId") Long repositoryId);
+    
+    /**
+     * Creates missing counters of users that have notifications
+     */
+    @Modifying
+    @Query("insert into NotificationCounter (email, unread) "
+            + "select distinct n.email, 0 from RepoNotification n "
+            + "where not exists (select c.email from NotificationCounter c where c.email = n.email)")
+    int createMissing();
+    
+    /**
+     * Recounts every counter from the notifications themselves
+     */
+    @Modifying
+    @Query("update NotificationCounter c set c.unread = "
+            + "(select count(n) from RepoNotification n where n.email = c.email and n.read = false)")
+    int recountAll();
+}
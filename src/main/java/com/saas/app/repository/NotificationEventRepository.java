@@ -0,0 +1,69 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.NotificationEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificationEventRepository extends JpaRepository<NotificationEvent, Long> {
+    
+    boolean existsByRepositoryIdAndOrganizationIsNullAndOccurredAtGreaterThanEqual(Long repositoryId,
+                                                                                  ZonedDateTime occurredAt);
+    
+    /**
+     * Gets the events a user sees through their notification-enabled
+     * repository and organization subscriptions, from when they subscribed
+     * and past what they cleared, the newest first
+     */
+    @Query(value = "select e from NotificationEvent e where "
+            + "(e.organization is null and exists (select s.id from RepoSubscription s "
+            + "where s.email = :email and s.notificationsEnabled = true and s.repository = e.repository "
+            + "and e.createdAt >= s.subscribedAt and e.id > coalesce(s.clearedCursor, 0))) "
+            + "or (e.organization is not null and exists (select o.id from OrgSubscription o "
+            + "where o.email = :email and o.notificationsEnabled = true and o.organization = e.organization "
+            + "and e.createdAt >= o.subscribedAt and e.id > coalesce(o.clearedCursor, 0))) "
+            + "order by e.createdAt desc, e.id desc",
+            countQuery = "select count(e) from NotificationEvent e where "
+            + "(e.organization is null and exists (select s.id from RepoSubscription s "
+            + "where s.email = :email and s.notificationsEnabled = true and s.repository = e.repository "
+            + "and e.createdAt >= s.subscribedAt and e.id > coalesce(s.clearedCursor, 0))) "
+            + "or (e.organization is not null and exists (select o.id from OrgSubscription o "
+            + "where o.email = :email and o.notificationsEnabled = true and o.organization = e.organization "
+            + "and e.createdAt >= o.subscribedAt and e.id > coalesce(o.clearedCursor, 0)))")
+    Page<NotificationEvent> findVisible(@Param("email") String email, Pageable pageable);
+    
+    /**
+     * Groups the events past a user's read cursors by repository
+     * 
+     * @return One row per repository: newest event id, number of events and first event time
+     */
+    @Query("select max(e.id), count(e), min(e.createdAt) from NotificationEvent e where "
+            + "(e.organization is null and exists (select s.id from RepoSubscription s "
+            + "where s.email = :email and s.notificationsEnabled = true and s.repository = e.repository "
+            + "and e.createdAt >= s.subscribedAt and e.id > coalesce(s.readCursor, 0))) "
+            + "or (e.organization is not null and exists (select o.id from OrgSubscription o "
+            + "where o.email = :email and o.notificationsEnabled = true and o.organization = e.organization "
+            + "and e.createdAt >= o.subscribedAt and e.id > coalesce(o.readCursor, 0))) "
+            + "group by e.repository.id")
+    List<Object[]> summarizeUnread(@Param("email") String email);
+    
+    /**
+     * Counts the repositories with events past a user's read cursors, the
+     * same as the number of rows {@link #summarizeUnread} returns
+     */
+    @Query("select count(distinct e.repository.id) from NotificationEvent e where "
+            + "(e.organization is null and exists (select s.id from RepoSubscription s "
+            + "where s.email = :email and s.notificationsEnabled = true and s.repository = e.repository "
+            + "and e.createdAt >= s.subscribedAt and e.id > coalesce(s.readCursor, 0))) "
+            + "or (e.organization is not null and exists (select o.id from OrgSubscription o "
+            + "where o.email = :email and o.notificationsEnabled = true and o.organization = e.organization "
+            + "and e.createdAt >= o.subscribedAt and e.id > coalesce(o.readCursor, 0)))")
+    long countUnreadRepositories(@Param("email") String email);
+}
@@ -4,21 +4,126 @@ import com.saas.app.model.RepoNotification;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<RepoNotification, Long> {
     
-    Page<RepoNotification> findByEmail(String email, Pageable pageable);
+    /**
+     * Gets the notifications of a user, the most recently updated first
+     */
+    @Query(value = "select n from RepoNotification n where n.email = :email "
+            + "order by coalesce(n.lastSeenAt, n.createdAt) desc, n.id desc",
+            countQuery = "select count(n) from RepoNotification n where n.email = :email")
+    Page<RepoNotification> findByEmail(@Param("email") String email, Pageable pageable);
     
-    List<RepoNotification> findByEmailAndReadFalseOrderByCreatedAtDesc(String email);
+    /**
+     * Gets the unread notifications of a user, the most recently updated first
+     */
+    @Query("select n from RepoNotification n where n.email = :email and n.read = false "
+            + "order by coalesce(n.lastSeenAt, n.createdAt) desc")
+    List<RepoNotification> findUnread(@Param("email") String email);
     
     Optional<RepoNotification> findByIdAndEmail(Long id, String email);
     
     int countByEmailAndReadFalse(String email);
     
     void deleteByEmail(String email);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("update RepoNotification n set n.read = true where n.email = :email and n.read = false")
+    int markAllAsRead(@Param("email") String email);
+    
+    @Modifying
+    @Query("update RepoNotification n set n.read = true where n.email = :email and n.read = false and n.id in :ids")
+    int markAsReadByIds(@Param("email") String email, @Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("update RepoNotification n set n.read = true "
+            + "where n.email = :email and n.read = false and coalesce(n.lastSeenAt, n.createdAt) < :before")
+    int markAsReadCreatedBefore(@Param("email") String email, @Param("before") ZonedDateTime before);
+    
+    /**
+     * Marks the unread notifications of a user whose latest activity is not
+     * newer than the given time, see {@link RepoNotification#getCursor()}
+     */
+    @Modifying
+    @Query("update RepoNotification n set n.read = true "
+            + "where n.email = :email and n.read = false and coalesce(n.lastSeenAt, n.createdAt) <= :seenUpTo")
+    int markAsReadUpTo(@Param("email") String email, @Param("seenUpTo") ZonedDateTime seenUpTo);
+    
+    /**
+     * Folds new activity into the unread notification about a repository of
+     * every notification-enabled subscriber that was last notified before
+     * the activity
+     * 
+     * @return The number of notifications updated
+     */
+    @Modifying
+    @Query("update RepoNotification n set n.eventCount = coalesce(n.eventCount, 1) + 1, n.lastSeenAt = :now, "
+            + "n.message = :message "
+            + "where n.read = false and n.repository.id = :repositoryId and n.email in "
+            + "(select s.email from RepoSubscription s where s.repository.id = :repositoryId "
+            + "and s.notificationsEnabled = true "
+            + "and (s.lastNotificationAt is null or s.lastNotificationAt < :activityAt))")
+    int coalesceForRepositorySubscribers(@Param("repositoryId") Long repositoryId, @Param("message") String message,
+                                         @Param("now") ZonedDateTime now, @Param("activityAt") ZonedDateTime activityAt);
+    
+    /**
+     * Creates a notification for every notification-enabled subscription of
+     * a repository that was last notified before the given activity and has
+     * no unread notification about it yet, in a single INSERT ... SELECT
+     * 
+     * @return The number of notifications created
+     */
+    @Modifying
+    @Query("insert into RepoNotification (email, repository, message, read, createdAt, eventCount, lastSeenAt) "
+            + "select s.email, s.repository, :message, false, :now, 1, :now from RepoSubscription s "
+            + "where s.repository.id = :repositoryId and s.notificationsEnabled = true "
+            + "and (s.lastNotificationAt is null or s.lastNotificationAt < :activityAt) "
+            + "and not exists (select n.id from RepoNotification n "
+            + "where n.email = s.email and n.repository = s.repository and n.read = false)")
+    int insertForRepositorySubscribers(@Param("repositoryId") Long repositoryId, @Param("message") String message,
+                                       @Param("now") ZonedDateTime now, @Param("activityAt") ZonedDateTime activityAt);
+    
+    /**
+     * Folds new activity into the unread notification about a repository of
+     * every notification-enabled subscriber of an organization
+     * 
+     * @return The number of notifications updated
+     */
+    @Modifying
+    @Query("update RepoNotification n set n.eventCount = coalesce(n.eventCount, 1) + 1, n.lastSeenAt = :now, "
+            + "n.message = :message "
+            + "where n.read = false and n.repository.id = :repositoryId and n.email in "
+            + "(select s.email from OrgSubscription s where s.organization.id = :organizationId "
+            + "and s.notificationsEnabled = true)")
+    int coalesceForOrganizationSubscribers(@Param("organizationId") Long organizationId,
+                                           @Param("repositoryId") Long repositoryId,
+                                           @Param("message") String message, @Param("now") ZonedDateTime now);
+    
+    /**
+     * Creates a notification about a repository for every
+     * notification-enabled subscription of an organization that has no
+     * unread notification about it yet, in a single INSERT ... SELECT
+     * 
+     * @return The number of notifications created
+     */
+    @Modifying
+    @Query("insert into RepoNotification (email, repository, message, read, createdAt, eventCount, lastSeenAt) "
+            + "select s.email, r, :message, false, :now, 1, :now from OrgSubscription s, GitHubRepository r "
+            + "where r.id = :repositoryId and s.organization.id = :organizationId and s.notificationsEnabled = true "
+            + "and not exists (select n.id from RepoNotification n "
+            + "where n.email = s.email and n.repository = r and n.read = false)")
+    int insertForOrganizationSubscribers(@Param("organizationId") Long organizationId,
+                                         @Param("repositoryId") Long repositoryId,
+                                         @Param("message") String message, @Param("now") ZonedDateTime now);
+}
@@ -0,0 +1,68 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.GitHubOrganization;
+import com.saas.app.model.OrgSubscription;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrgSubscriptionRepository extends JpaRepository<OrgSubscription, Long> {
+    
+    List<OrgSubscription> findByEmail(String email);
+    
+    Optional<OrgSubscription> findByEmailAndOrganization(String email, GitHubOrganization organization);
+    
+    boolean existsByEmailAndOrganization(String email, GitHubOrganization organization);
+    
+    void deleteByEmailAndOrganization(String email, GitHubOrganization organization);
+    
+    List<OrgSubscription> findByOrganization(GitHubOrganization organization);
+    
+    List<OrgSubscription> findByNotificationsEnabledTrue();
+    
+    boolean existsByOrganizationIdAndNotificationsEnabledTrue(Long organizationId);
+    
+    @Modifying
+    @Query("update OrgSubscription s set s.lastNotificationAt = :now "
+            + "where s.organization.id = :organizationId and s.notificationsEnabled = true")
+    int markNotified(@Param("organizationId") Long organizationId, @Param("now") ZonedDateTime now);
+    
+    /**
+     * Moves a user's read cursors forward to the newest notification event
+     * routed to each subscribed organization within the bounds; a null bound
+     * is not applied. Cursors never move back.
+     * 
+     * @return The number of subscriptions updated
+     */
+    @Modifying
+    @Query("update OrgSubscription s set s.readCursor = "
+            + "(select max(e.id) from NotificationEvent e where e.organization = s.organization "
+            + "and (:upTo is null or e.id <= :upTo) and (:before is null or e.createdAt < :before)) "
+            + "where s.email = :email and (:organizationId is null or s.organization.id = :organizationId) "
+            + "and exists (select e.id from NotificationEvent e where e.organization = s.organization "
+            + "and e.id > coalesce(s.readCursor, 0) "
+            + "and (:upTo is null or e.id <= :upTo) and (:before is null or e.createdAt < :before))")
+    int advanceReadCursors(@Param("email") String email, @Param("organizationId") Long organizationId,
+                           @Param("upTo") Long upTo, @Param("before") ZonedDateTime before);
+    
+    /**
+     * Moves a user's cleared and read cursors to the newest notification
+     * event routed to each subscribed organization, so no event so far is listed
+     * 
+     * @return The number of subscriptions updated
+     */
+    @Modifying
+    @Query("update OrgSubscription s set "
+            + "s.clearedCursor = (select max(e.id) from NotificationEvent e where e.organization = s.organization), "
+            + "s.readCursor = (select max(e.id) from NotificationEvent e where e.organization = s.organization) "
+            + "where s.email = :email and exists (select e.id from NotificationEvent e "
+            + "where e.organization = s.organization and e.id > coalesce(s.clearedCursor, 0))")
+    int clearCursors(@Param("email") String email);
+}
@@ -0,0 +1,32 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.GitHubOrganization;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrganizationRepository extends JpaRepository<GitHubOrganization, Long> {
+    
+    Optional<GitHubOrganization> findByLoginIgnoreCase(String login);
+    
+    /**
+     * Takes the check lease of the given organizations that are not leased by another node
+     */
+    @Modifying
+    @Query("update GitHubOrganization o set o.leaseOwner = :node, o.leaseUntil = :until "
+            + "where o.id in :ids and (o.leaseOwner is null or o.leaseOwner = :node or o.leaseUntil < :now)")
+    int claimLeases(@Param("ids") Collection<Long> ids, @Param("node") String node,
+                    @Param("until") ZonedDateTime until, @Param("now") ZonedDateTime now);
+    
+    @Query("select o.id from GitHubOrganization o where o.id in :ids and o.leaseOwner = :node and o.leaseUntil > :now")
+    List<Long> findLeased(@Param("ids") Collection<Long> ids, @Param("node") String node,
+                          @Param("now") ZonedDateTime now);
+}
@@ -0,0 +1,24 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.RepoActivity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface RepoActivityRepository extends JpaRepository<RepoActivity, Long> {
+    
+    List<RepoActivity> findByRepositoryOrderByCreatedAtDesc(GitHubRepository repository, Pageable pageable);
+    
+    List<RepoActivity> findByRepositoryAndTypeOrderByCreatedAtDesc(GitHubRepository repository, String type, Pageable pageable);
+    
+    @Query("SELECT a.url FROM RepoActivity a WHERE a.url IN :urls")
+    Set<String> findExistingUrls(@Param("urls") Collection<String> urls);
+}
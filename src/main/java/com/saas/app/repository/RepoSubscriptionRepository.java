@@ -3,8 +3,12 @@ package com.saas.app.repository;
 import com.saas.app.model.RepoSubscription;
 import com.saas.app.model.GitHubRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +26,58 @@ public interface RepoSubscriptionRepository extends JpaRepository<RepoSubscripti
     List<RepoSubscription> findByRepository(GitHubRepository repository);
     
     List<RepoSubscription> findByNotificationsEnabledTrue();
-}
\ No newline at end of file
+    
+    List<RepoSubscription> findByRepositoryAndNotificationsEnabledTrue(GitHubRepository repository);
+    
+    boolean existsByRepositoryIdAndNotificationsEnabledTrue(Long repositoryId);
+    
+    /**
+     * Marks the notification-enabled subscriptions of a repository that were
+     * last notified before the given activity as notified now
+     * 
+     * @return The number of subscriptions updated
+     */
+    @Modifying
+    @Query("update RepoSubscription s set s.lastNotificationAt = :now "
+            + "where s.repository.id = :repositoryId and s.notificationsEnabled = true "
+            + "and (s.lastNotificationAt is null or s.lastNotificationAt < :activityAt)")
+    int markNotified(@Param("repositoryId") Long repositoryId, @Param("now") ZonedDateTime now,
+                     @Param("activityAt") ZonedDateTime activityAt);
+    
+    /**
+     * Moves a user's read cursors forward to the newest notification event
+     * of each subscribed repository within the bounds; a null bound is not
+     * applied. Cursors never move back.
+     * 
+     * @param repositoryId Only this repository's subscription, or null for all
+     * @param upTo Newest event id to mark as read
+     * @param before Only events created before this time are marked as read
+     * @return The number of subscriptions updated
+     */
+    @Modifying
+    @Query("update RepoSubscription s set s.readCursor = "
+            + "(select max(e.id) from NotificationEvent e where e.repository = s.repository and e.organization is null "
+            + "and (:upTo is null or e.id <= :upTo) and (:before is null or e.createdAt < :before)) "
+            + "where s.email = :email and (:repositoryId is null or s.repository.id = :repositoryId) "
+            + "and exists (select e.id from NotificationEvent e where e.repository = s.repository "
+            + "and e.organization is null and e.id > coalesce(s.readCursor, 0) "
+            + "and (:upTo is null or e.id <= :upTo) and (:before is null or e.createdAt < :before))")
+    int advanceReadCursors(@Param("email") String email, @Param("repositoryId") Long repositoryId,
+                           @Param("upTo") Long upTo, @Param("before") ZonedDateTime before);
+    
+    /**
+     * Moves a user's cleared and read cursors to the newest notification
+     * event of each subscribed repository, so no event so far is listed
+     * 
+     * @return The number of subscriptions updated
+     */
+    @Modifying
+    @Query("update RepoSubscription s set "
+            + "s.clearedCursor = (select max(e.id) from NotificationEvent e "
+            + "where e.repository = s.repository and e.organization is null), "
+            + "s.readCursor = (select max(e.id) from NotificationEvent e "
+            + "where e.repository = s.repository and e.organization is null) "
+            + "where s.email = :email and exists (select e.id from NotificationEvent e "
+            + "where e.repository = s.repository and e.organization is null and e.id > coalesce(s.clearedCursor, 0))")
+    int clearCursors(@Param("email") String email);
+}
@@ -2,9 +2,13 @@ package com.saas.app.repository;
 
 import com.saas.app.model.GitHubRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +17,50 @@ public interface RepositoryRepository extends JpaRepository<GitHubRepository, Lo
     
     Optional<GitHubRepository> findByOwnerAndName(String owner, String name);
     
+    Optional<GitHubRepository> findByOwnerIgnoreCaseAndNameIgnoreCase(String owner, String name);
+    
     boolean existsByOwnerAndName(String owner, String name);
     
     List<GitHubRepository> findByLastCheckedAtBefore(ZonedDateTime time);
-}
\ No newline at end of file
+    
+    List<GitHubRepository> findByFailureCountGreaterThanEqualOrderByLastFailureAtDesc(Integer failureCount);
+    
+    /**
+     * Finds the distinct repositories with at least one notification-enabled
+     * subscription that are due for a check, the longest overdue first.
+     * Repositories kept up to date by webhooks are only returned once their
+     * last check is older than the safety poll cutoff.
+     */
+    @Query("select r from GitHubRepository r "
+            + "where exists (select s.id from RepoSubscription s where s.repository = r and s.notificationsEnabled = true) "
+            + "and (r.nextCheckAt is null or r.nextCheckAt <= :now) "
+            + "and (r.lastWebhookAt is null or r.lastCheckedAt is null or r.lastCheckedAt <= :safetyPollBefore) "
+            + "order by r.nextCheckAt asc nulls first")
+    List<GitHubRepository> findDueForCheck(@Param("now") ZonedDateTime now,
+                                           @Param("safetyPollBefore") ZonedDateTime safetyPollBefore);
+    
+    /**
+     * Takes the check lease of the given repositories that are due and not
+     * leased by another node
+     */
+    @Modifying
+    @Query("update GitHubRepository r set r.leaseOwner = :node, r.leaseUntil = :until "
+            + "where r.id in :ids "
+            + "and (r.leaseOwner is null or r.leaseOwner = :node or r.leaseUntil < :now) "
+            + "and (r.nextCheckAt is null or r.nextCheckAt <= :now)")
+    int claimLeases(@Param("ids") Collection<Long> ids, @Param("node") String node,
+                    @Param("until") ZonedDateTime until, @Param("now") ZonedDateTime now);
+    
+    @Query("select r.id from GitHubRepository r where r.id in :ids and r.leaseOwner = :node and r.leaseUntil > :now")
+    List<Long> findLeased(@Param("ids") Collection<Long> ids, @Param("node") String node,
+                          @Param("now") ZonedDateTime now);
+    
+    /**
+     * Gives up this node's lease on the given repositories so they can be
+     * picked up again right away, e.g. when they were deferred to the next run
+     */
+    @Modifying
+    @Query("update GitHubRepository r set r.leaseOwner = null, r.leaseUntil = null "
+            + "where r.id in :ids and r.leaseOwner = :node")
+    int releaseLeases(@Param("ids") Collection<Long> ids, @Param("node") String node);
+}
@@ -0,0 +1,21 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.SchedulerNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Repository
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+    
+    List<SchedulerNode> findByHeartbeatAtAfterOrderByNodeId(ZonedDateTime time);
+    
+    @Modifying
+    @Query("delete from SchedulerNode n where n.heartbeatAt < :cutoff")
+    int deleteByHeartbeatAtBefore(@Param("cutoff") ZonedDateTime cutoff);
+}
@@ -0,0 +1,22 @@
+package com.saas.app.repository;
+
+import com.saas.app.model.SchedulerRun;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+
+@Repository
+public interface SchedulerRunRepository extends JpaRepository<SchedulerRun, Long> {
+
+    Page<SchedulerRun> findByTask(String task, Pageable pageable);
+
+    @Modifying
+    @Query("delete from SchedulerRun r where r.startedAt < :cutoff")
+    int deleteByStartedAtBefore(@Param("cutoff") ZonedDateTime cutoff);
+}
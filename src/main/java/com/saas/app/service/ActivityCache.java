@@ -0,0 +1,143 @@
+package com.saas.app.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubActivityFeed;
+import com.saas.app.util.GitHubTokenPool;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory cache of live GitHub reads, keyed by repository, category and limit.
+ *
+ * Concurrent misses for the same key share a single upstream call. Entries
+ * older than the refresh interval are still served while one background
+ * refresh runs; while the token pool is running low on quota the stale
+ * entry is kept instead of refreshing it.
+ */
+@Service
+public class ActivityCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityCache.class);
+
+    static final String FEED = "activities";
+
+    private final GitHubService gitHubService;
+    private final GitHubTokenPool tokenPool;
+    private final long lowQuotaThreshold;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LoadingCache<Key, Object> cache;
+
+    @Autowired
+    public ActivityCache(
+            GitHubService gitHubService,
+            GitHubTokenPool tokenPool,
+            @Value("${app.cache.max-entries:1000}") long maxEntries,
+            @Value("${app.cache.refresh-after-seconds:60}") long refreshAfterSeconds,
+            @Value("${app.cache.expire-after-minutes:30}") long expireAfterMinutes,
+            @Value("${app.cache.low-quota-threshold:100}") long lowQuotaThreshold) {
+        this.gitHubService = gitHubService;
+        this.tokenPool = tokenPool;
+        this.lowQuotaThreshold = lowQuotaThreshold;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfterWrite(Duration.ofMinutes(expireAfterMinutes))
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(new Loader());
+    }
+
+    public GitHubActivityFeed getRepositoryActivities(String owner, String repo, int limit) {
+        Key key = new Key(owner, repo, FEED, limit);
+        GitHubActivityFeed feed = (GitHubActivityFeed) cache.get(key);
+        // A partial feed is returned once but not kept, so the next reader retries the missing categories
+        if (feed.isPartial()) {
+            cache.asMap().remove(key, feed);
+        }
+        return feed;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<GitHubActivity> getActivities(String owner, String repo, String category, int limit) {
+        return (List<GitHubActivity>) cache.get(new Key(owner, repo, category, limit));
+    }
+
+    /**
+     * Drops every cached read of a repository, e.g. after new activity was detected
+     */
+    public void invalidate(String owner, String repo) {
+        String normalizedOwner = owner.toLowerCase(Locale.ROOT);
+        String normalizedRepo = repo.toLowerCase(Locale.ROOT);
+        cache.asMap().keySet().removeIf(key ->
+                key.owner().equals(normalizedOwner) && key.repo().equals(normalizedRepo));
+    }
+
+    /**
+     * Gets hit ratio, load and eviction counters of the cache
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadSuccessCount", stats.loadSuccessCount());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private record Key(String owner, String repo, String category, int limit) {
+        private Key {
+            owner = owner == null ? null : owner.toLowerCase(Locale.ROOT);
+            repo = repo == null ? null : repo.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private class Loader implements CacheLoader<Key, Object> {
+
+        @Override
+        public Object load(Key key) {
+            return switch (key.category()) {
+                case FEED -> gitHubService.getRepositoryActivities(key.owner(), key.repo(), key.limit());
+                case "commit" -> gitHubService.getCommits(key.owner(), key.repo(), key.limit());
+                case "pull_request" -> gitHubService.getPullRequests(key.owner(), key.repo(), key.limit());
+                case "issue" -> gitHubService.getIssues(key.owner(), key.repo(), key.limit());
+                case "release" -> gitHubService.getReleases(key.owner(), key.repo(), key.limit());
+                default -> throw new IllegalArgumentException("Unknown activity category: " + key.category());
+            };
+        }
+
+        @Override
+        public Object reload(Key key, Object oldValue) {
+            if (tokenPool.isRunningLow("core", lowQuotaThreshold)) {
+                logger.debug("Quota is running low, keeping cached {} of {}/{}",
+                        key.category(), key.owner(), key.repo());
+                return oldValue;
+            }
+            return load(key);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubActivityFeed;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.RepoActivity;
+import com.saas.app.repository.RepoActivityRepository;
+import com.saas.app.repository.RepositoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serves repository activity from the local mirror that the scheduler keeps
+ * up to date, and falls back to GitHub (through the shared in-memory cache)
+ * for repositories that are unknown, stale or not mirrored deep enough.
+ */
+@Service
+public class ActivityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityService.class);
+
+    private final RepoActivityRepository activityRepository;
+    private final RepositoryRepository repositoryRepository;
+    private final ActivityCache activityCache;
+    private final TransactionTemplate newTransaction;
+
+    @Value("${app.activity.mirror-max-age-minutes:10}")
+    private long mirrorMaxAgeMinutes;
+
+    @Autowired
+    public ActivityService(RepoActivityRepository activityRepository,
+                           RepositoryRepository repositoryRepository,
+                           ActivityCache activityCache,
+                           PlatformTransactionManager transactionManager) {
+        this.activityRepository = activityRepository;
+        this.repositoryRepository = repositoryRepository;
+        this.activityCache = activityCache;
+        // record() called from within this class bypasses the proxy and its @Transactional
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Stores activities in the mirror, skipping those already stored
+     *
+     * @param repository The repository the activities belong to
+     * @param activities The activities to store
+     * @return The number of newly stored activities
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int record(GitHubRepository repository, List<GitHubActivity> activities) {
+        Map<String, GitHubActivity> byUrl = new LinkedHashMap<>();
+        for (GitHubActivity activity : activities) {
+            if (activity.getUrl() != null) {
+                byUrl.putIfAbsent(activity.getUrl(), activity);
+            }
+        }
+        if (byUrl.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> existing = activityRepository.findExistingUrls(byUrl.keySet());
+        List<RepoActivity> fresh = byUrl.values().stream()
+                .filter(activity -> !existing.contains(activity.getUrl()))
+                .map(activity -> new RepoActivity(repository, activity))
+                .collect(Collectors.toList());
+
+        activityRepository.saveAll(fresh);
+        return fresh.size();
+    }
+
+    /**
+     * Stores activities fetched on the read path, logging instead of failing
+     * when another writer stored the same items concurrently. The write runs
+     * in a transaction of its own, so a conflict cannot roll back the caller's.
+     */
+    private void recordQuietly(GitHubRepository repository, List<GitHubActivity> activities) {
+        try {
+            newTransaction.executeWithoutResult(status -> record(repository, activities));
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Activity of {}/{} was stored concurrently: {}",
+                    repository.getOwner(), repository.getName(), e.getMessage());
+        }
+    }
+
+    public GitHubActivityFeed getRepositoryActivities(String owner, String repo, int limit) {
+        Optional<GitHubRepository> mirrored = findMirrored(owner, repo, limit);
+        if (mirrored.isPresent()) {
+            List<GitHubActivity> activities = activityRepository
+                    .findByRepositoryOrderByCreatedAtDesc(mirrored.get(), PageRequest.of(0, limit))
+                    .stream()
+                    .map(RepoActivity::toActivity)
+                    .collect(Collectors.toList());
+            return new GitHubActivityFeed(activities, false, List.of());
+        }
+
+        GitHubActivityFeed feed = activityCache.getRepositoryActivities(owner, repo, limit);
+        repositoryRepository.findByOwnerAndName(owner, repo)
+                .ifPresent(repository -> recordQuietly(repository, feed.getActivities()));
+        return feed;
+    }
+
+    public List<GitHubActivity> getCommits(String owner, String repo, int limit) {
+        return getActivities(owner, repo, "commit", limit);
+    }
+
+    public List<GitHubActivity> getPullRequests(String owner, String repo, int limit) {
+        return getActivities(owner, repo, "pull_request", limit);
+    }
+
+    public List<GitHubActivity> getIssues(String owner, String repo, int limit) {
+        return getActivities(owner, repo, "issue", limit);
+    }
+
+    public List<GitHubActivity> getReleases(String owner, String repo, int limit) {
+        return getActivities(owner, repo, "release", limit);
+    }
+
+    private List<GitHubActivity> getActivities(String owner, String repo, String type, int limit) {
+        Optional<GitHubRepository> mirrored = findMirrored(owner, repo, limit);
+        if (mirrored.isPresent()) {
+            return activityRepository
+                    .findByRepositoryAndTypeOrderByCreatedAtDesc(mirrored.get(), type, PageRequest.of(0, limit))
+                    .stream()
+                    .map(RepoActivity::toActivity)
+                    .collect(Collectors.toList());
+        }
+
+        List<GitHubActivity> activities = activityCache.getActivities(owner, repo, type, limit);
+        repositoryRepository.findByOwnerAndName(owner, repo)
+                .ifPresent(repository -> recordQuietly(repository, activities));
+        return activities;
+    }
+
+    /**
+     * Finds the repository if its mirror can answer a read of the given size:
+     * it is tracked, was checked recently and was seeded at least that deep
+     */
+    private Optional<GitHubRepository> findMirrored(String owner, String repo, int limit) {
+        if (limit <= 0) {
+            return Optional.empty();
+        }
+        ZonedDateTime freshAfter = ZonedDateTime.now().minusMinutes(mirrorMaxAgeMinutes);
+        return repositoryRepository.findByOwnerAndName(owner, repo)
+                .filter(repository -> repository.getMirroredDepth() != null && repository.getMirroredDepth() >= limit)
+                .filter(repository -> repository.getLastCheckedAt() != null && repository.getLastCheckedAt().isAfter(freshAfter));
+    }
+}
@@ -0,0 +1,252 @@
+package com.saas.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saas.app.exception.GitHubApiException;
+import com.saas.app.model.GitHubOrganization;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.util.GitHubTokenPool;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells from a repository's or organization's events feed whether anything
+ * happened since the last check, so the per-category fetches only run when
+ * they will find something. The feed is requested conditionally and no more often than the
+ * X-Poll-Interval GitHub asks for.
+ */
+@Service
+public class GitHubEventsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitHubEventsService.class);
+
+    private static final int EVENTS_PER_PAGE = 100;
+
+    // GitHub serves at most 300 events of a feed
+    private static final int MAX_EVENT_PAGES = 3;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String apiUrl;
+    private final GitHubTokenPool tokenPool;
+
+    // Earliest time each feed may be requested again, by "owner/name" or "orgs/login"
+    private final Map<String, Instant> nextPollAt = new ConcurrentHashMap<>();
+
+    public GitHubEventsService(
+            OkHttpClient httpClient,
+            ObjectMapper objectMapper,
+            @Value("${app.github.api-url:https://api.github.com}") String apiUrl,
+            GitHubTokenPool tokenPool) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.apiUrl = apiUrl;
+        this.tokenPool = tokenPool;
+    }
+
+    /**
+     * Result of an events check
+     *
+     * @param polled Whether the feed was read; false while the poll interval has not passed
+     * @param changed Whether the feed shows new activity that the category fetches should pick up
+     * @param newestEventId Newest event in the feed, to be stored once the new activity was fetched
+     * @param nextPollAt Earliest time the feed may be read again, if GitHub asked for a poll interval
+     */
+    public record EventsCheck(boolean polled, boolean changed, Long newestEventId, Instant nextPollAt) {
+
+        static EventsCheck notDue(Instant nextPollAt) {
+            return new EventsCheck(false, false, null, nextPollAt);
+        }
+    }
+
+    /**
+     * Result of an organization events check
+     *
+     * @param polled Whether the feed was read; false while the poll interval has not passed
+     * @param repositories Names of the organization's repositories with new activity
+     * @param newestEventId Newest event in the feed
+     */
+    public record OrgEventsCheck(boolean polled, Set<String> repositories, Long newestEventId) {
+
+        static OrgEventsCheck notDue() {
+            return new OrgEventsCheck(false, Set.of(), null);
+        }
+    }
+
+    /**
+     * Checks the events feed of a repository against its event watermark.
+     * A repository without an event watermark always counts as changed.
+     *
+     * @param repository The repository to check
+     * @return The outcome of the check
+     * @throws GitHubApiException if the feed could not be read
+     */
+    public EventsCheck check(GitHubRepository repository) {
+        String key = repository.getOwner() + "/" + repository.getName();
+        if (!isDue(key)) {
+            return EventsCheck.notDue(nextPollAt.get(key));
+        }
+        JsonNode events = readPage(key, 1, "repos", repository.getOwner(), repository.getName(), "events");
+        return compare(repository, events, nextPollAt.get(key));
+    }
+
+    /**
+     * Checks the events feed of a whole organization, which covers the
+     * activity of all of its public repositories in one request. When a busy
+     * organization pushed the watermark off the first page, the older pages
+     * are read until it is reached.
+     *
+     * @param organization The organization to check
+     * @return The repositories with activity newer than the organization's event watermark
+     * @throws GitHubApiException if the feed could not be read
+     */
+    public OrgEventsCheck check(GitHubOrganization organization) {
+        String key = "orgs/" + organization.getLogin();
+        if (!isDue(key)) {
+            return OrgEventsCheck.notDue();
+        }
+
+        Long since = organization.getEventWatermark();
+        long newest = since != null ? since : 0L;
+        long oldest = Long.MAX_VALUE;
+        Set<String> repositories = new LinkedHashSet<>();
+        int page = 1;
+        JsonNode events;
+        do {
+            events = readPage(key, page, "orgs", organization.getLogin(), "events");
+            for (JsonNode event : events) {
+                long id = event.path("id").asLong();
+                newest = Math.max(newest, id);
+                oldest = Math.min(oldest, id);
+                // Repository names come as "owner/name"
+                String name = event.path("repo").path("name").asText("");
+                if (since != null && id > since && isActivity(event) && name.indexOf('/') > 0) {
+                    repositories.add(name.substring(name.indexOf('/') + 1));
+                }
+            }
+            page++;
+            // The first check only records where the feed stands, so it needs no more than the first page
+        } while (since != null && events.size() >= EVENTS_PER_PAGE && oldest > since && page <= MAX_EVENT_PAGES);
+
+        if (since != null && events.size() >= EVENTS_PER_PAGE && oldest > since) {
+            logger.warn("Events feed of organization {} moved more than {} events past its watermark; "
+                    + "older activity may be missed", organization.getLogin(), MAX_EVENT_PAGES * EVENTS_PER_PAGE);
+        }
+        return new OrgEventsCheck(true, repositories, newest);
+    }
+
+    /**
+     * Checks if GitHub's poll interval for a feed has passed
+     */
+    private boolean isDue(String key) {
+        Instant notBefore = nextPollAt.get(key);
+        return notBefore == null || !Instant.now().isBefore(notBefore);
+    }
+
+    /**
+     * Reads one page of an events feed, the newest events first
+     *
+     * @return The events
+     */
+    private JsonNode readPage(String key, int page, String... pathSegments) {
+        HttpUrl.Builder url = HttpUrl.get(apiUrl).newBuilder();
+        for (String segment : pathSegments) {
+            url.addPathSegment(segment);
+        }
+        url.addQueryParameter("per_page", String.valueOf(EVENTS_PER_PAGE));
+        if (page > 1) {
+            url.addQueryParameter("page", String.valueOf(page));
+        }
+
+        Request.Builder request = new Request.Builder()
+                .url(url.build())
+                .header("Accept", "application/vnd.github+json")
+                // Always revalidate the cached page; an unchanged feed comes back as a free 304
+                .cacheControl(new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build());
+        String token = tokenPool.acquire("core");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+
+        try (Response response = httpClient.newCall(request.build()).execute()) {
+            String pollInterval = response.header("X-Poll-Interval");
+            if (page == 1 && pollInterval != null) {
+                try {
+                    nextPollAt.put(key, Instant.now().plusSeconds(Long.parseLong(pollInterval)));
+                } catch (NumberFormatException e) {
+                    // Poll again on the next run
+                }
+            }
+
+            if (!response.isSuccessful()) {
+                throw new GitHubApiException("Events request for " + key + " failed with status " + response.code());
+            }
+
+            // A 304 is served from the cached page, which is compared against the watermark as well
+            return objectMapper.readTree(response.body().string());
+        } catch (IOException e) {
+            throw new GitHubApiException("Events request for " + key + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private EventsCheck compare(GitHubRepository repository, JsonNode events, Instant pollAt) {
+        Long since = repository.getWatermarks().getEventId();
+        Long newest = null;
+        Long oldest = null;
+        boolean relevant = false;
+
+        for (JsonNode event : events) {
+            long id = event.path("id").asLong();
+            if (newest == null || id > newest) {
+                newest = id;
+            }
+            if (oldest == null || id < oldest) {
+                oldest = id;
+            }
+            if ((since == null || id > since) && isActivity(event)) {
+                relevant = true;
+            }
+        }
+
+        if (newest == null) {
+            // An empty feed (e.g. no activity in the last 90 days) hides nothing; 0 marks it as seen
+            return new EventsCheck(true, since == null, since != null ? since : 0L, pollAt);
+        }
+
+        // A full page that does not reach back to the watermark may hide older new activity
+        boolean gap = since != null && events.size() >= EVENTS_PER_PAGE && oldest > since;
+        boolean changed = since == null || relevant || gap;
+        if (changed) {
+            logger.debug("Events feed of {}/{} shows new activity", repository.getOwner(), repository.getName());
+        }
+        return new EventsCheck(true, changed, Math.max(newest, since != null ? since : newest), pollAt);
+    }
+
+    /**
+     * Checks if an event is one of the kinds the category fetches report
+     */
+    private boolean isActivity(JsonNode event) {
+        String action = event.path("payload").path("action").asText("");
+        return switch (event.path("type").asText("")) {
+            case "PushEvent" -> true;
+            case "PullRequestEvent", "IssuesEvent" -> "opened".equals(action);
+            case "ReleaseEvent" -> "published".equals(action);
+            default -> false;
+        };
+    }
+}
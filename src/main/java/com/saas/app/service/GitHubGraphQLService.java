@@ -0,0 +1,313 @@
+package com.saas.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saas.app.exception.GitHubApiException;
+import com.saas.app.model.ActivityWatermarks;
+import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.util.GitHubCircuitBreaker;
+import com.saas.app.util.GitHubTokenPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches recent activity for many repositories at once through the GitHub
+ * GraphQL API. One query covers commits, pull requests, issues and releases
+ * of a whole batch of repositories.
+ *
+ * A batch that fails as a whole, e.g. because GitHub could not be reached or
+ * answered without data, is a problem of GitHub rather than of the
+ * repositories in it, so it is reported to the {@link GitHubCircuitBreaker}
+ * instead of being held against each repository.
+ */
+@Service
+public class GitHubGraphQLService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitHubGraphQLService.class);
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private static final String RECENT_ACTIVITY_FRAGMENT = """
+            fragment recentActivity on Repository {
+              pullRequests(first: $limit, orderBy: {field: CREATED_AT, direction: DESC}) {
+                nodes { number title url createdAt author { login } }
+              }
+              issues(first: $limit, orderBy: {field: CREATED_AT, direction: DESC}) {
+                nodes { number title url createdAt author { login } }
+              }
+              releases(first: $limit, orderBy: {field: CREATED_AT, direction: DESC}) {
+                nodes { databaseId name url publishedAt }
+              }
+            }
+            """;
+
+    private static final String REPOSITORY_SELECTION = """
+              r%1$d: repository(owner: $o%1$d, name: $n%1$d) {
+                ...recentActivity
+                defaultBranchRef {
+                  target {
+                    ... on Commit {
+                      history(first: $limit, since: $s%1$d) {
+                        nodes { oid message committedDate url author { name user { login } } }
+                      }
+                    }
+                  }
+                }
+              }
+            """;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String graphqlUrl;
+    private final int batchSize;
+    private final GitHubTokenPool tokenPool;
+    private final GitHubCircuitBreaker circuitBreaker;
+
+    /**
+     * Result of fetching repositories
+     *
+     * @param activities New activities per repository that was fetched, newest first
+     * @param notFound Repositories GitHub answered as not found; the
+     *                 repositories in neither were part of a batch that failed as a whole
+     */
+    public record Results(Map<GitHubRepository, List<GitHubActivity>> activities, Set<GitHubRepository> notFound) {
+    }
+
+    public GitHubGraphQLService(
+            OkHttpClient httpClient,
+            ObjectMapper objectMapper,
+            @Value("${app.github.graphql-url:https://api.github.com/graphql}") String graphqlUrl,
+            @Value("${app.github.graphql-batch-size:25}") int batchSize,
+            GitHubTokenPool tokenPool,
+            GitHubCircuitBreaker circuitBreaker) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.graphqlUrl = graphqlUrl;
+        this.batchSize = batchSize;
+        this.tokenPool = tokenPool;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Fetches the activity newer than each repository's watermarks, sending
+     * one query per batch of repositories. Watermarks of the repositories
+     * that were fetched are advanced in place.
+     *
+     * @param repositories The repositories to check
+     * @param limit Maximum number of items to fetch per category
+     * @return New activities of the repositories that were fetched, and the ones that were not found
+     */
+    public Results getNewActivities(List<GitHubRepository> repositories, int limit) {
+        Map<GitHubRepository, List<GitHubActivity>> results = new LinkedHashMap<>();
+        Set<GitHubRepository> notFound = new LinkedHashSet<>();
+
+        for (int from = 0; from < repositories.size(); from += batchSize) {
+            List<GitHubRepository> batch = repositories.subList(from, Math.min(from + batchSize, repositories.size()));
+            if (circuitBreaker.isOpen()) {
+                logger.warn("Polling is paused, {} repositories not fetched", repositories.size() - from);
+                break;
+            }
+            try {
+                JsonNode body = query(batch, limit);
+                JsonNode data = body.path("data");
+                Set<String> notFoundAliases = notFoundAliases(body.path("errors"));
+                int returned = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    GitHubRepository repository = batch.get(i);
+                    JsonNode node = data.path("r" + i);
+                    if (!node.isMissingNode() && !node.isNull()) {
+                        results.put(repository, readRepository(repository, node));
+                        returned++;
+                    } else if (notFoundAliases.contains("r" + i)) {
+                        notFound.add(repository);
+                        returned++;
+                    } else {
+                        logger.warn("Repository {}/{} was not returned by GraphQL",
+                                repository.getOwner(), repository.getName());
+                    }
+                }
+                if (returned == 0) {
+                    // Nothing but errors, e.g. a GraphQL rate limit, which the next batch would run into as well
+                    circuitBreaker.open("GraphQL query returned only errors");
+                    logger.error("GraphQL batch of {} repositories returned only errors: {}",
+                            batch.size(), body.path("errors"));
+                }
+            } catch (GitHubApiException e) {
+                logger.error("GraphQL batch of {} repositories failed: {}", batch.size(), e.getMessage());
+            }
+        }
+        return new Results(results, notFound);
+    }
+
+    /**
+     * Gets the aliases of the repositories an error response names as not found
+     */
+    private Set<String> notFoundAliases(JsonNode errors) {
+        Set<String> aliases = new HashSet<>();
+        for (JsonNode error : errors) {
+            if ("NOT_FOUND".equals(error.path("type").asText()) && error.path("path").size() == 1) {
+                aliases.add(error.path("path").get(0).asText());
+            }
+        }
+        return aliases;
+    }
+
+    private JsonNode query(List<GitHubRepository> batch, int limit) {
+        StringBuilder declarations = new StringBuilder("$limit: Int!");
+        StringBuilder selections = new StringBuilder();
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("limit", limit);
+
+        for (int i = 0; i < batch.size(); i++) {
+            GitHubRepository repository = batch.get(i);
+            declarations.append(String.format(", $o%1$d: String!, $n%1$d: String!, $s%1$d: GitTimestamp", i));
+            selections.append(String.format(REPOSITORY_SELECTION, i));
+            variables.put("o" + i, repository.getOwner());
+            variables.put("n" + i, repository.getName());
+            ZonedDateTime since = repository.getWatermarks().getCommitAt();
+            variables.put("s" + i, since != null ? since.toInstant().toString() : null);
+        }
+
+        String query = "query(" + declarations + ") {\n" + selections + "}\n" + RECENT_ACTIVITY_FRAGMENT;
+
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("query", query);
+            payload.put("variables", variables);
+
+            Request.Builder request = new Request.Builder()
+                    .url(graphqlUrl)
+                    .post(RequestBody.create(objectMapper.writeValueAsBytes(payload), JSON));
+            String token = tokenPool.acquire("graphql");
+            if (token != null) {
+                request.header("Authorization", "bearer " + token);
+            }
+
+            try (Response response = httpClient.newCall(request.build()).execute()) {
+                if (!response.isSuccessful()) {
+                    String error = "GraphQL request failed with status " + response.code();
+                    // Server errors are counted by the circuit breaker as they pass through the client
+                    if (response.code() < 500) {
+                        circuitBreaker.recordFailure(error);
+                    }
+                    throw new GitHubApiException(error);
+                }
+                JsonNode body = objectMapper.readTree(response.body().string());
+                if (!body.path("data").isObject()) {
+                    circuitBreaker.open("GraphQL query returned no data");
+                    throw new GitHubApiException("GraphQL query returned no data: " + body.path("errors"));
+                }
+                // Errors for single repositories (e.g. not found) come back next to partial data
+                if (body.has("errors")) {
+                    logger.warn("GraphQL query returned errors: {}", body.get("errors"));
+                }
+                return body;
+            }
+        } catch (IOException e) {
+            circuitBreaker.recordFailure("GraphQL request failed: " + e.getMessage());
+            throw new GitHubApiException("GraphQL request failed: " + e.getMessage(), e);
+        }
+    }
+
+    private List<GitHubActivity> readRepository(GitHubRepository repository, JsonNode node) {
+        ActivityWatermarks since = repository.getWatermarks();
+        ActivityWatermarks next = since.copy();
+        String name = repository.getName();
+        List<GitHubActivity> activities = new ArrayList<>();
+
+        List<JsonNode> commits = new ArrayList<>();
+        for (JsonNode commit : node.path("defaultBranchRef").path("target").path("history").path("nodes")) {
+            if (commit.path("oid").asText().equals(since.getCommitSha())) {
+                break;
+            }
+            commits.add(commit);
+        }
+        for (JsonNode commit : commits) {
+            JsonNode author = commit.path("author");
+            String actor = author.path("user").hasNonNull("login")
+                    ? author.path("user").path("login").asText()
+                    : author.path("name").asText("Unknown");
+            activities.add(new GitHubActivity("commit", name, actor, commit.path("message").asText(),
+                    commit.path("url").asText(), parseDate(commit.path("committedDate"))));
+        }
+        if (!commits.isEmpty()) {
+            next.setCommitSha(commits.get(0).path("oid").asText());
+            activities.stream()
+                    .map(GitHubActivity::getCreatedAt)
+                    .max(Comparator.naturalOrder())
+                    .ifPresent(next::setCommitAt);
+        }
+
+        for (JsonNode pr : node.path("pullRequests").path("nodes")) {
+            int number = pr.path("number").asInt();
+            if (since.getPullRequestNumber() != null && number <= since.getPullRequestNumber()) {
+                break;
+            }
+            if (next.getPullRequestNumber() == null || number > next.getPullRequestNumber()) {
+                next.setPullRequestNumber(number);
+            }
+            activities.add(new GitHubActivity("pull_request", name, pr.path("author").path("login").asText("ghost"),
+                    pr.path("title").asText(), pr.path("url").asText(), parseDate(pr.path("createdAt"))));
+        }
+
+        for (JsonNode issue : node.path("issues").path("nodes")) {
+            int number = issue.path("number").asInt();
+            if (since.getIssueNumber() != null && number <= since.getIssueNumber()) {
+                break;
+            }
+            if (next.getIssueNumber() == null || number > next.getIssueNumber()) {
+                next.setIssueNumber(number);
+            }
+            activities.add(new GitHubActivity("issue", name, issue.path("author").path("login").asText("ghost"),
+                    issue.path("title").asText(), issue.path("url").asText(), parseDate(issue.path("createdAt"))));
+        }
+
+        for (JsonNode release : node.path("releases").path("nodes")) {
+            long id = release.path("databaseId").asLong();
+            if (since.getReleaseId() != null && id <= since.getReleaseId()) {
+                break;
+            }
+            if (next.getReleaseId() == null || id > next.getReleaseId()) {
+                next.setReleaseId(id);
+            }
+            String releaseName = release.hasNonNull("name") ? release.get("name").asText() : "Unnamed release";
+            activities.add(new GitHubActivity("release", name, repository.getOwner(), releaseName,
+                    release.path("url").asText(), parseDate(release.path("publishedAt"))));
+        }
+
+        since.copyFrom(next);
+        return activities.stream()
+                .sorted(Comparator.comparing(GitHubActivity::getCreatedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private ZonedDateTime parseDate(JsonNode value) {
+        if (value == null || !value.isTextual()) {
+            return ZonedDateTime.now();
+        }
+        return Instant.parse(value.asText()).atZone(ZoneId.systemDefault());
+    }
+}
@@ -1,36 +1,123 @@
 package com.saas.app.service;
 
 import com.saas.app.exception.GitHubApiException;
+import com.saas.app.model.ActivityWatermarks;
 import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubActivityFeed;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.util.ConditionalRequestTracker;
+import com.saas.app.util.GitHubTokenPool;
+import com.saas.app.util.RequestPacer;
+import jakarta.annotation.PreDestroy;
+import okhttp3.OkHttpClient;
 import org.kohsuke.github.*;
+import org.kohsuke.github.extras.okhttp3.OkHttpGitHubConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 public class GitHubService {
     private static final Logger logger = LoggerFactory.getLogger(GitHubService.class);
 
-    @Value("${GITHUB_TOKEN:#{null}}")
-    private String githubToken;
+    // Upper bound on pages read per category, e.g. when issues are buried under pull requests
+    private static final int MAX_PAGES_PER_FETCH = 3;
 
+    private static final String ANONYMOUS = "";
+
+    // Requests of one polling check: the repository lookup and the first page of each category
+    private static final int REQUESTS_PER_POLL = 5;
+
+    private final OkHttpClient httpClient;
+    private final OkHttpClient pollingHttpClient;
+    private final ConditionalRequestTracker requestTracker;
+    private final GitHubTokenPool tokenPool;
+    private final GitHubGraphQLService graphQLService;
+    private final RequestPacer requestPacer;
+
+    @Value("${app.github.fetch-mode:rest}")
+    private String fetchMode;
+
+    @Value("${app.github.category-timeout-seconds:10}")
+    private long categoryTimeoutSeconds;
+
+    private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // One long-lived client per configured token, for live reads and for polling
+    private final Map<String, GitHub> clients = new ConcurrentHashMap<>();
+    private final Map<String, GitHub> pollingClients = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GitHubService(OkHttpClient httpClient,
+                         @Qualifier("gitHubPollingHttpClient") OkHttpClient pollingHttpClient,
+                         ConditionalRequestTracker requestTracker,
+                         GitHubTokenPool tokenPool,
+                         GitHubGraphQLService graphQLService,
+                         RequestPacer requestPacer) {
+        this.httpClient = httpClient;
+        this.pollingHttpClient = pollingHttpClient;
+        this.requestTracker = requestTracker;
+        this.tokenPool = tokenPool;
+        this.graphQLService = graphQLService;
+        this.requestPacer = requestPacer;
+    }
+
+    /**
+     * Returns the long-lived GitHub client of the pooled token that has the
+     * most remaining quota, creating the client on first use. Clients share
+     * the same HTTP connection pool.
+     */
     private GitHub connectToGitHub() {
+        String token = tokenPool.acquire("core");
+        return clients.computeIfAbsent(token != null ? token : ANONYMOUS, t -> buildClient(httpClient, t));
+    }
+
+    /**
+     * Same as {@link #connectToGitHub()}, but the client keeps the
+     * validators of its conditional requests apart from live reads
+     */
+    private GitHub connectForPolling() {
+        String token = tokenPool.acquire("core");
+        return pollingClients.computeIfAbsent(token != null ? token : ANONYMOUS,
+                t -> buildClient(pollingHttpClient, t));
+    }
+
+    private GitHub buildClient(OkHttpClient client, String token) {
         try {
-            if (githubToken != null && !githubToken.isEmpty()) {
-                logger.debug("Connecting to GitHub with authentication token");
-                return new GitHubBuilder().withOAuthToken(githubToken).build();
+            GitHubBuilder builder = new GitHubBuilder()
+                    .withConnector(new OkHttpGitHubConnector(client, 0))
+                    // Exhausted tokens are parked by the pool instead of blocking the caller
+                    .withRateLimitHandler(GitHubRateLimitHandler.FAIL);
+            if (!ANONYMOUS.equals(token)) {
+                logger.info("Connecting to GitHub with authentication token ({} in pool)", tokenPool.size());
+                builder.withOAuthToken(token);
             } else {
                 logger.warn("Connecting to GitHub anonymously - rate limits will be lower");
-                return GitHub.connectAnonymously();
             }
+            return builder.build();
         } catch (IOException e) {
             logger.error("Failed to connect to GitHub API", e);
             throw new GitHubApiException("Failed to connect to GitHub API", e);
@@ -38,8 +125,11 @@ public class GitHubService {
     }
 
     private GHRepository getRepository(String owner, String repo) {
+        return getRepository(connectToGitHub(), owner, repo);
+    }
+
+    private GHRepository getRepository(GitHub github, String owner, String repo) {
         try {
-            GitHub github = connectToGitHub();
             return github.getRepository(owner + "/" + repo);
         } catch (IOException e) {
             logger.error("Failed to fetch repository {}/{}", owner, repo, e);
@@ -48,59 +138,51 @@ public class GitHubService {
     }
 
     public List<GitHubActivity> getCommits(GHRepository repository, int limit) {
+        return getCommits(repository, limit, false);
+    }
+
+    /**
+     * Gets the latest commits of a repository. By default the activity is
+     * built only from the list-commits payload, using the git author name.
+     * Enriching resolves each author's GitHub login, which costs one extra
+     * request per commit.
+     *
+     * @param repository The repository
+     * @param limit Maximum number of commits
+     * @param enrichAuthors Whether to resolve the GitHub login of each author
+     * @return The commits, newest first
+     */
+    public List<GitHubActivity> getCommits(GHRepository repository, int limit, boolean enrichAuthors) {
         validateParams(repository.getOwnerName(), repository.getName(), limit);
 
         return repository.listCommits()
                 .withPageSize(limit)
                 .iterator()
                 .nextPage().stream()
-                .map(commit -> {
-                    try {
-                        return new GitHubActivity(
-                                "commit",
-                                repository.getName(),
-                                commit.getAuthor() != null ? commit.getAuthor().getLogin() : "Unknown",
-                                commit.getCommitShortInfo().getMessage(),
-                                commit.getHtmlUrl().toString(),
-                                commit.getCommitDate().toInstant().atZone(ZoneId.systemDefault()));
-                    } catch (IOException e) {
-                        logger.warn("Error retrieving commit details", e);
-                        return null;
-                    }
-                })
+                .map(commit -> toActivity(repository, commit, enrichAuthors))
                 .filter(a -> a != null)
                 .collect(Collectors.toList());
     }
 
     public List<GitHubActivity> getCommits(String owner, String repo, int limit) {
+        return getCommits(owner, repo, limit, false);
+    }
+
+    public List<GitHubActivity> getCommits(String owner, String repo, int limit, boolean enrichAuthors) {
         validateParams(owner, repo, limit);
-        return getCommits(getRepository(owner, repo), limit);
+        return getCommits(getRepository(owner, repo), limit, enrichAuthors);
     }
 
     public List<GitHubActivity> getPullRequests(GHRepository repository, int limit) {
         validateParams(repository.getOwnerName(), repository.getName(), limit);
 
         try {
-            return repository.getPullRequests(GHIssueState.ALL)
+            return readNewest(newestPullRequests(repository), limit, pr -> false, pr -> true)
                     .stream()
-                    .limit(limit)
-                    .map(pr -> {
-                        try {
-                            return new GitHubActivity(
-                                    "pull_request",
-                                    repository.getName(),
-                                    pr.getUser().getLogin(),
-                                    pr.getTitle(),
-                                    pr.getHtmlUrl().toString(),
-                                    pr.getCreatedAt().toInstant().atZone(ZoneId.systemDefault()));
-                        } catch (IOException e) {
-                            logger.warn("Error retrieving PR details", e);
-                            return null;
-                        }
-                    })
+                    .map(pr -> toActivity(repository, pr))
                     .filter(a -> a != null)
                     .collect(Collectors.toList());
-        } catch (IOException e) {
+        } catch (GHException e) {
             logger.error("Failed to fetch pull requests for {}/{}", repository.getOwnerName(), repository.getName(), e);
             throw new GitHubApiException("Failed to fetch pull requests", e);
         }
@@ -115,27 +197,12 @@ public class GitHubService {
         validateParams(repository.getOwnerName(), repository.getName(), limit);
 
         try {
-            return repository.getIssues(GHIssueState.ALL)
+            return readNewest(repository.listIssues(GHIssueState.ALL), limit, issue -> false, issue -> !issue.isPullRequest())
                     .stream()
-                    .filter(issue -> !issue.isPullRequest())
-                    .limit(limit)
-                    .map(issue -> {
-                        try {
-                            return new GitHubActivity(
-                                    "issue",
-                                    repository.getName(),
-                                    issue.getUser().getLogin(),
-                                    issue.getTitle(),
-                                    issue.getHtmlUrl().toString(),
-                                    issue.getCreatedAt().toInstant().atZone(ZoneId.systemDefault()));
-                        } catch (IOException e) {
-                            logger.warn("Error retrieving issue details", e);
-                            return null;
-                        }
-                    })
+                    .map(issue -> toActivity(repository, issue))
                     .filter(a -> a != null)
                     .collect(Collectors.toList());
-        } catch (IOException e) {
+        } catch (GHException e) {
             logger.error("Failed to fetch issues for {}/{}", repository.getOwnerName(), repository.getName(), e);
             throw new GitHubApiException("Failed to fetch issues", e);
         }
@@ -150,32 +217,12 @@ public class GitHubService {
         validateParams(repository.getOwnerName(), repository.getName(), limit);
 
         try {
-            return repository.listReleases()
-                    .toList()
+            return readNewest(repository.listReleases(), limit, release -> false, release -> true)
                     .stream()
-                    .limit(limit)
-                    .map(release -> {
-                        try {
-                            String htmlUrl = release.getHtmlUrl().toString();
-                            String name = release.getName() != null ? release.getName() : "Unnamed release";
-
-                            return new GitHubActivity(
-                                    "release",
-                                    repository.getName(),
-                                    repository.getOwnerName(),
-                                    name,
-                                    htmlUrl,
-                                    release.getPublished_at() != null
-                                            ? release.getPublished_at().toInstant().atZone(ZoneId.systemDefault())
-                                            : java.time.ZonedDateTime.now());
-                        } catch (Exception e) {
-                            logger.warn("Unexpected error processing release: {}", e.getMessage());
-                            return null;
-                        }
-                    })
+                    .map(release -> toActivity(repository, release))
                     .filter(a -> a != null)
                     .collect(Collectors.toList());
-        } catch (IOException e) {
+        } catch (GHException e) {
             logger.error("Failed to fetch releases for {}/{}", repository.getOwnerName(), repository.getName(), e);
             throw new GitHubApiException("Failed to fetch releases", e);
         }
@@ -186,22 +233,388 @@ public class GitHubService {
         return getReleases(getRepository(owner, repo), limit);
     }
 
-    public List<GitHubActivity> getRepositoryActivities(String owner, String repo, int limit) {
+    private GitHubActivity toActivity(GHRepository repository, GHCommit commit, boolean enrichAuthor) {
+        try {
+            GHCommit.ShortInfo info = commit.getCommitShortInfo();
+            String actor;
+            if (enrichAuthor) {
+                // Looks up the author's account, one request per commit
+                GHUser author = commit.getAuthor();
+                actor = author != null ? author.getLogin() : "Unknown";
+            } else {
+                actor = info.getAuthor() != null ? info.getAuthor().getName() : "Unknown";
+            }
+
+            return new GitHubActivity(
+                    "commit",
+                    repository.getName(),
+                    actor,
+                    info.getMessage(),
+                    commit.getHtmlUrl().toString(),
+                    commit.getCommitDate().toInstant().atZone(ZoneId.systemDefault()));
+        } catch (IOException e) {
+            logger.warn("Error retrieving commit details", e);
+            return null;
+        }
+    }
+
+    private GitHubActivity toActivity(GHRepository repository, GHPullRequest pr) {
+        try {
+            return new GitHubActivity(
+                    "pull_request",
+                    repository.getName(),
+                    pr.getUser().getLogin(),
+                    pr.getTitle(),
+                    pr.getHtmlUrl().toString(),
+                    pr.getCreatedAt().toInstant().atZone(ZoneId.systemDefault()));
+        } catch (IOException e) {
+            logger.warn("Error retrieving PR details", e);
+            return null;
+        }
+    }
+
+    private GitHubActivity toActivity(GHRepository repository, GHIssue issue) {
+        try {
+            return new GitHubActivity(
+                    "issue",
+                    repository.getName(),
+                    issue.getUser().getLogin(),
+                    issue.getTitle(),
+                    issue.getHtmlUrl().toString(),
+                    issue.getCreatedAt().toInstant().atZone(ZoneId.systemDefault()));
+        } catch (IOException e) {
+            logger.warn("Error retrieving issue details", e);
+            return null;
+        }
+    }
+
+    private GitHubActivity toActivity(GHRepository repository, GHRelease release) {
+        try {
+            String htmlUrl = release.getHtmlUrl().toString();
+            String name = release.getName() != null ? release.getName() : "Unnamed release";
+
+            return new GitHubActivity(
+                    "release",
+                    repository.getName(),
+                    repository.getOwnerName(),
+                    name,
+                    htmlUrl,
+                    release.getPublished_at() != null
+                            ? release.getPublished_at().toInstant().atZone(ZoneId.systemDefault())
+                            : java.time.ZonedDateTime.now());
+        } catch (Exception e) {
+            logger.warn("Unexpected error processing release: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fetches commits, pull requests, issues and releases concurrently and
+     * merges them. A category that fails or does not answer within the
+     * category timeout is left out and the feed is flagged as partial.
+     *
+     * @param owner Repository owner
+     * @param repo Repository name
+     * @param limit Maximum number of activities to return
+     * @return The merged activity feed, newest first
+     */
+    public GitHubActivityFeed getRepositoryActivities(String owner, String repo, int limit) {
         validateParams(owner, repo, limit);
-        
+
         GHRepository repository = getRepository(owner, repo);
-        
-        List<GitHubActivity> commits = getCommits(repository, limit);
-        List<GitHubActivity> prs = getPullRequests(repository, limit);
-        List<GitHubActivity> issues = getIssues(repository, limit);
-        List<GitHubActivity> releases = getReleases(repository, limit);
-
-        // Combine and sort by date (newest first)
-        return Stream.of(commits, prs, issues, releases)
+
+        Map<String, Supplier<List<GitHubActivity>>> categories = new LinkedHashMap<>();
+        categories.put("commits", () -> getCommits(repository, limit));
+        categories.put("pull requests", () -> getPullRequests(repository, limit));
+        categories.put("issues", () -> getIssues(repository, limit));
+        categories.put("releases", () -> getReleases(repository, limit));
+
+        return fetchCategories(repository, categories, limit, false);
+    }
+
+    /**
+     * Fetches only the activity that is newer than the given watermarks.
+     * Commits are queried with {@code since}, the other categories are read
+     * newest first and stop at the first item the watermark already covers.
+     * Every request is conditional; a category that GitHub answers with
+     * 304 Not Modified contributes nothing and is not mapped.
+     *
+     * @param owner Repository owner
+     * @param repo Repository name
+     * @param watermarks Watermarks from the previous check, advanced in place on success
+     * @param limit Maximum number of activities to fetch per category
+     * @return All activities newer than the watermarks, newest first, in a feed
+     *         that lists the categories answered with 304
+     * @throws GitHubApiException if any category could not be fetched
+     */
+    public GitHubActivityFeed getNewActivities(String owner, String repo, ActivityWatermarks watermarks, int limit) {
+        validateParams(owner, repo, limit);
+
+        // Waiting for the pacer here keeps the wait out of the categories' time budget
+        try {
+            requestPacer.acquire(REQUESTS_PER_POLL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitHubApiException("Interrupted while waiting to poll " + owner + "/" + repo, e);
+        }
+        GHRepository repository = getRepository(connectForPolling(), owner, repo);
+
+        // Each category advances only its own fields of the copy
+        ActivityWatermarks next = watermarks.copy();
+        Map<String, Supplier<List<GitHubActivity>>> categories = new LinkedHashMap<>();
+        categories.put("commits", () -> getCommitsSince(repository, watermarks, next, limit));
+        categories.put("pull requests", () -> getPullRequestsSince(repository, watermarks, next, limit));
+        categories.put("issues", () -> getIssuesSince(repository, watermarks, next, limit));
+        categories.put("releases", () -> getReleasesSince(repository, watermarks, next, limit));
+
+        // Keep every new item of every category rather than the newest few overall
+        GitHubActivityFeed feed = fetchCategories(repository, categories, categories.size() * limit, true);
+
+        // A missing category could hide new activity, so polling never accepts a partial result
+        if (feed.isPartial()) {
+            throw new GitHubApiException("Failed to fetch " + String.join(", ", feed.getMissingCategories())
+                    + " for " + owner + "/" + repo);
+        }
+
+        watermarks.copyFrom(next);
+        return feed;
+    }
+
+    /**
+     * Fetches the activity newer than the watermarks of several repositories.
+     * With {@code app.github.fetch-mode=graphql} the repositories are fetched
+     * in batches through one GraphQL query each, otherwise every repository
+     * goes through the REST path of
+     * {@link #getNewActivities(String, String, ActivityWatermarks, int)}.
+     *
+     * @param repositories The repositories to check
+     * @param limit Maximum number of activities to fetch per category
+     * @return New activities per repository, and why the others failed
+     */
+    public BatchFeeds getNewActivities(List<GitHubRepository> repositories, int limit) {
+        Map<GitHubRepository, GitHubActivityFeed> results = new LinkedHashMap<>();
+        Map<GitHubRepository, String> failures = new LinkedHashMap<>();
+        if (fetchesInBatches()) {
+            GitHubGraphQLService.Results fetched = graphQLService.getNewActivities(repositories, limit);
+            // GraphQL queries are not cached, so every category is read in full
+            fetched.activities().forEach((repository, activities) ->
+                    results.put(repository, new GitHubActivityFeed(activities, false, List.of())));
+            fetched.notFound().forEach(repository -> failures.put(repository, "Not found on GitHub"));
+            return new BatchFeeds(results, failures);
+        }
+
+        for (GitHubRepository repository : repositories) {
+            try {
+                results.put(repository, getNewActivities(
+                        repository.getOwner(), repository.getName(), repository.getWatermarks(), limit));
+            } catch (Exception e) {
+                logger.error("Error checking repository {}/{} for activity: {}",
+                        repository.getOwner(), repository.getName(), e.getMessage());
+                failures.put(repository, e.getMessage());
+            }
+        }
+        return new BatchFeeds(results, failures);
+    }
+
+    /**
+     * Result of fetching several repositories
+     *
+     * @param feeds New activity of each repository that was fetched
+     * @param failures Why the fetch of a repository failed, for the failures
+     *                 that are the repository's own; repositories in neither
+     *                 map were not fetched because of a problem with GitHub as a whole
+     */
+    public record BatchFeeds(Map<GitHubRepository, GitHubActivityFeed> feeds,
+                             Map<GitHubRepository, String> failures) {
+    }
+
+    /**
+     * Checks if repositories are fetched in GraphQL batches rather than one by one
+     */
+    public boolean fetchesInBatches() {
+        return "graphql".equalsIgnoreCase(fetchMode);
+    }
+
+    private List<GitHubActivity> getCommitsSince(GHRepository repository, ActivityWatermarks since,
+                                                 ActivityWatermarks next, int limit) {
+        GHCommitQueryBuilder query = repository.queryCommits();
+        if (since.getCommitAt() != null) {
+            query.since(Date.from(since.getCommitAt().toInstant()));
+        }
+
+        List<GHCommit> commits = readNewest(query.list(), limit,
+                commit -> commit.getSHA1().equals(since.getCommitSha()),
+                commit -> true);
+        if (commits.isEmpty()) {
+            return List.of();
+        }
+
+        List<GitHubActivity> activities = commits.stream()
+                .map(commit -> toActivity(repository, commit, false))
+                .filter(a -> a != null)
+                .collect(Collectors.toList());
+
+        next.setCommitSha(commits.get(0).getSHA1());
+        activities.stream()
+                .map(GitHubActivity::getCreatedAt)
+                .max(Comparator.naturalOrder())
+                .ifPresent(next::setCommitAt);
+        return activities;
+    }
+
+    private List<GitHubActivity> getPullRequestsSince(GHRepository repository, ActivityWatermarks since,
+                                                      ActivityWatermarks next, int limit) {
+        List<GHPullRequest> pullRequests = readNewest(newestPullRequests(repository), limit,
+                pr -> since.getPullRequestNumber() != null && pr.getNumber() <= since.getPullRequestNumber(),
+                pr -> true);
+        if (pullRequests.isEmpty()) {
+            return List.of();
+        }
+
+        next.setPullRequestNumber(pullRequests.get(0).getNumber());
+        return pullRequests.stream()
+                .map(pr -> toActivity(repository, pr))
+                .filter(a -> a != null)
+                .collect(Collectors.toList());
+    }
+
+    private List<GitHubActivity> getIssuesSince(GHRepository repository, ActivityWatermarks since,
+                                                ActivityWatermarks next, int limit) {
+        // The issues listing also contains pull requests; both share one number sequence
+        List<GHIssue> issues = readNewest(repository.listIssues(GHIssueState.ALL), limit,
+                issue -> since.getIssueNumber() != null && issue.getNumber() <= since.getIssueNumber(),
+                issue -> !issue.isPullRequest());
+        if (issues.isEmpty()) {
+            return List.of();
+        }
+
+        next.setIssueNumber(issues.get(0).getNumber());
+        return issues.stream()
+                .map(issue -> toActivity(repository, issue))
+                .filter(a -> a != null)
+                .collect(Collectors.toList());
+    }
+
+    private List<GitHubActivity> getReleasesSince(GHRepository repository, ActivityWatermarks since,
+                                                  ActivityWatermarks next, int limit) {
+        List<GHRelease> releases = readNewest(repository.listReleases(), limit,
+                release -> since.getReleaseId() != null && release.getId() <= since.getReleaseId(),
+                release -> true);
+        if (releases.isEmpty()) {
+            return List.of();
+        }
+
+        next.setReleaseId(releases.stream().mapToLong(GHRelease::getId).max().getAsLong());
+        return releases.stream()
+                .map(release -> toActivity(repository, release))
+                .filter(a -> a != null)
+                .collect(Collectors.toList());
+    }
+
+    private PagedIterable<GHPullRequest> newestPullRequests(GHRepository repository) {
+        return repository.queryPullRequests()
+                .state(GHIssueState.ALL)
+                .sort(GHPullRequestQueryBuilder.Sort.CREATED)
+                .direction(GHDirection.DESC)
+                .list();
+    }
+
+    /**
+     * Reads a listing newest first, requesting pages of {@code limit} items
+     * only as they are needed. Reading stops at the first item the watermark
+     * already covers, once {@code limit} items were collected, or after
+     * {@link #MAX_PAGES_PER_FETCH} pages. Nothing is returned when the first
+     * page was not modified.
+     *
+     * @param listing The listing, sorted newest first
+     * @param limit Maximum number of items to collect
+     * @param seen Matches items that were already seen in a previous check
+     * @param include Matches items that belong to the category
+     * @param <T> The item type
+     * @return The new items, newest first
+     */
+    private <T> List<T> readNewest(PagedIterable<T> listing, int limit, Predicate<T> seen, Predicate<T> include) {
+        PagedIterator<T> pages = listing.withPageSize(limit).iterator();
+        List<T> items = new ArrayList<>();
+
+        for (int page = 0; page < MAX_PAGES_PER_FETCH && pages.hasNext(); page++) {
+            List<T> pageItems = pages.nextPage();
+            if (page == 0 && requestTracker.unchanged()) {
+                return List.of();
+            }
+            for (T item : pageItems) {
+                if (seen.test(item)) {
+                    return items;
+                }
+                if (include.test(item)) {
+                    items.add(item);
+                    if (items.size() >= limit) {
+                        return items;
+                    }
+                }
+            }
+        }
+        return items;
+    }
+
+    private GitHubActivityFeed fetchCategories(GHRepository repository,
+                                               Map<String, Supplier<List<GitHubActivity>>> categories,
+                                               int limit, boolean conditional) {
+        Map<String, Future<List<GitHubActivity>>> futures = new LinkedHashMap<>();
+        List<String> notModified = Collections.synchronizedList(new ArrayList<>());
+        categories.forEach((category, fetch) -> futures.put(category,
+                fetchExecutor.submit(() -> conditional ? requestTracker.withinScope(() -> {
+                    List<GitHubActivity> fetched = fetch.get();
+                    if (requestTracker.unchanged()) {
+                        notModified.add(category);
+                    }
+                    return fetched;
+                }) : fetch.get())));
+
+        // All categories start together, so one deadline gives each the same time budget
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(categoryTimeoutSeconds);
+        List<List<GitHubActivity>> fetched = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+
+        for (Map.Entry<String, Future<List<GitHubActivity>>> entry : futures.entrySet()) {
+            String category = entry.getKey();
+            Future<List<GitHubActivity>> future = entry.getValue();
+            try {
+                fetched.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                logger.warn("Timed out fetching {} for {}/{}", category,
+                        repository.getOwnerName(), repository.getName());
+                missing.add(category);
+            } catch (ExecutionException e) {
+                logger.warn("Failed to fetch {} for {}/{}: {}", category,
+                        repository.getOwnerName(), repository.getName(), e.getCause().getMessage());
+                missing.add(category);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                throw new GitHubApiException("Interrupted while fetching repository activity", e);
+            }
+        }
+
+        if (fetched.isEmpty()) {
+            throw new GitHubApiException("Failed to fetch any activity for "
+                    + repository.getOwnerName() + "/" + repository.getName());
+        }
+
+        List<GitHubActivity> activities = fetched.stream()
                 .flatMap(List::stream)
                 .sorted(Comparator.comparing(GitHubActivity::getCreatedAt).reversed())
                 .limit(limit)
                 .collect(Collectors.toList());
+        GitHubActivityFeed feed = new GitHubActivityFeed(activities, !missing.isEmpty(), missing);
+        feed.setNotModifiedCategories(List.copyOf(notModified));
+        return feed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
     }
 
     private void validateParams(String owner, String repo, int limit) {
@@ -229,4 +642,20 @@ public class GitHubService {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Validates if an organization exists and is accessible
+     */
+    public boolean validateOrganization(String login) {
+        if (login == null || login.trim().isEmpty()) {
+            throw new IllegalArgumentException("Organization name cannot be empty");
+        }
+        try {
+            connectToGitHub().getOrganization(login);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Organization validation failed for {}: {}", login, e.getMessage());
+            return false;
+        }
+    }
+}
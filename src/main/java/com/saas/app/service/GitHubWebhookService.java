@@ -0,0 +1,276 @@
+package com.saas.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saas.app.exception.WebhookSignatureException;
+import com.saas.app.model.ActivityWatermarks;
+import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.repository.RepositoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Turns GitHub webhook deliveries into activity of tracked repositories.
+ * A delivery records its activity, advances the repository's watermarks and
+ * notifies subscribers right away, so the scheduler does not have to poll
+ * repositories that deliver webhooks.
+ */
+@Service
+public class GitHubWebhookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitHubWebhookService.class);
+
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    // A push payload lists at most this many commits, even when more were pushed
+    private static final int MAX_PUSH_COMMITS = 20;
+
+    // Event types that carry activity of one of the polled categories
+    private static final Set<String> ACTIVITY_EVENTS = Set.of("push", "pull_request", "issues", "release");
+
+    private final RepositoryRepository repositoryRepository;
+    private final ActivityService activityService;
+    private final ActivityCache activityCache;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.github.webhook-secret:}")
+    private String webhookSecret;
+
+    @Autowired
+    public GitHubWebhookService(RepositoryRepository repositoryRepository,
+                                ActivityService activityService,
+                                ActivityCache activityCache,
+                                NotificationService notificationService,
+                                ObjectMapper objectMapper) {
+        this.repositoryRepository = repositoryRepository;
+        this.activityService = activityService;
+        this.activityCache = activityCache;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Handles one webhook delivery
+     *
+     * @param event The X-GitHub-Event header
+     * @param signature The X-Hub-Signature-256 header
+     * @param payload The raw request body the signature was computed over
+     * @return The number of new activities found in the delivery
+     * @throws WebhookSignatureException if the signature does not match the payload
+     * @throws IllegalArgumentException if the payload cannot be parsed
+     */
+    @Transactional
+    public int handle(String event, String signature, byte[] payload) {
+        verifySignature(signature, payload);
+
+        JsonNode body;
+        try {
+            body = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid webhook payload: " + e.getMessage());
+        }
+
+        String fullName = body.path("repository").path("full_name").asText("");
+        int slash = fullName.indexOf('/');
+        if (slash <= 0) {
+            logger.debug("Ignoring {} delivery without a repository", event);
+            return 0;
+        }
+
+        Optional<GitHubRepository> tracked = repositoryRepository.findByOwnerIgnoreCaseAndNameIgnoreCase(
+                fullName.substring(0, slash), fullName.substring(slash + 1));
+        if (tracked.isEmpty()) {
+            logger.debug("Ignoring {} delivery for untracked repository {}", event, fullName);
+            return 0;
+        }
+
+        GitHubRepository repository = tracked.get();
+        // Only deliveries of activity events show the hook is subscribed to them; a ping or
+        // an unrelated event type would let polling stop while activity is not delivered
+        if (event == null || !ACTIVITY_EVENTS.contains(event)) {
+            logger.debug("Ignoring unsupported {} delivery for {}", event, fullName);
+            return 0;
+        }
+        repository.markWebhookDelivery();
+
+        List<GitHubActivity> activities = toActivities(event, repository, body);
+        if (activities.isEmpty()) {
+            repositoryRepository.save(repository);
+            return 0;
+        }
+
+        int stored;
+        try {
+            stored = activityService.record(repository, activities);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent redelivery stored the same activity first
+            logger.warn("Failed to mirror webhook activity of {}: {}", fullName, e.getMessage());
+            stored = 0;
+        }
+
+        // Redeliveries, and activity polling already found, are not new
+        if (stored == 0) {
+            logger.info("Ignoring {} webhook for {}, its activity is already known", event, fullName);
+            repositoryRepository.save(repository);
+            return 0;
+        }
+
+        // Watermarks are only moved once polling has seeded them
+        if (repository.getWatermarks().hasAny()) {
+            advanceWatermarks(repository.getWatermarks(), event, body);
+        }
+
+        activityCache.invalidate(repository.getOwner(), repository.getName());
+        repository.markActivity();
+        repositoryRepository.save(repository);
+
+        logger.info("Received {} new activities in repository {} via {} webhook", stored, fullName, event);
+        notificationService.notifySubscribers(repository);
+        return stored;
+    }
+
+    private void verifySignature(String signature, byte[] payload) {
+        if (webhookSecret == null || webhookSecret.isBlank()) {
+            throw new WebhookSignatureException("Webhook secret is not configured");
+        }
+        if (signature == null || !signature.startsWith(SIGNATURE_PREFIX)) {
+            throw new WebhookSignatureException("Missing webhook signature");
+        }
+
+        byte[] expected;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            expected = mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+
+        byte[] actual;
+        try {
+            actual = HexFormat.of().parseHex(signature.substring(SIGNATURE_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new WebhookSignatureException("Malformed webhook signature");
+        }
+
+        // Constant-time comparison
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new WebhookSignatureException("Webhook signature does not match");
+        }
+    }
+
+    private List<GitHubActivity> toActivities(String event, GitHubRepository repository, JsonNode body) {
+        String name = repository.getName();
+        String action = body.path("action").asText("");
+        List<GitHubActivity> activities = new ArrayList<>();
+
+        switch (event == null ? "" : event) {
+            case "push" -> {
+                if (!isDefaultBranchPush(body)) {
+                    break;
+                }
+                for (JsonNode commit : body.path("commits")) {
+                    JsonNode author = commit.path("author");
+                    String actor = author.hasNonNull("username")
+                            ? author.get("username").asText()
+                            : author.path("name").asText("Unknown");
+                    activities.add(new GitHubActivity("commit", name, actor, commit.path("message").asText(),
+                            commit.path("url").asText(), parseDate(commit.path("timestamp"))));
+                }
+            }
+            case "pull_request" -> {
+                if ("opened".equals(action)) {
+                    JsonNode pr = body.path("pull_request");
+                    activities.add(new GitHubActivity("pull_request", name, pr.path("user").path("login").asText("ghost"),
+                            pr.path("title").asText(), pr.path("html_url").asText(), parseDate(pr.path("created_at"))));
+                }
+            }
+            case "issues" -> {
+                if ("opened".equals(action)) {
+                    JsonNode issue = body.path("issue");
+                    activities.add(new GitHubActivity("issue", name, issue.path("user").path("login").asText("ghost"),
+                            issue.path("title").asText(), issue.path("html_url").asText(), parseDate(issue.path("created_at"))));
+                }
+            }
+            case "release" -> {
+                if ("published".equals(action)) {
+                    JsonNode release = body.path("release");
+                    String releaseName = release.hasNonNull("name") ? release.get("name").asText() : "Unnamed release";
+                    activities.add(new GitHubActivity("release", name, repository.getOwner(), releaseName,
+                            release.path("html_url").asText(), parseDate(release.path("published_at"))));
+                }
+            }
+            default -> logger.debug("Ignoring unsupported webhook event {}", event);
+        }
+        return activities;
+    }
+
+    private void advanceWatermarks(ActivityWatermarks watermarks, String event, JsonNode body) {
+        switch (event) {
+            case "push" -> {
+                // A full payload may have left commits out, which polling still has to fetch
+                if (body.path("commits").size() < MAX_PUSH_COMMITS) {
+                    watermarks.setCommitSha(body.path("after").asText());
+                    watermarks.setCommitAt(parseDate(body.path("head_commit").path("timestamp")));
+                }
+            }
+            case "pull_request" -> {
+                int number = body.path("pull_request").path("number").asInt();
+                if (watermarks.getPullRequestNumber() == null || number > watermarks.getPullRequestNumber()) {
+                    watermarks.setPullRequestNumber(number);
+                }
+            }
+            case "issues" -> {
+                int number = body.path("issue").path("number").asInt();
+                if (watermarks.getIssueNumber() == null || number > watermarks.getIssueNumber()) {
+                    watermarks.setIssueNumber(number);
+                }
+            }
+            case "release" -> {
+                long id = body.path("release").path("id").asLong();
+                if (watermarks.getReleaseId() == null || id > watermarks.getReleaseId()) {
+                    watermarks.setReleaseId(id);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Polling only follows the default branch, so pushes elsewhere are not activity
+     */
+    private boolean isDefaultBranchPush(JsonNode body) {
+        String defaultBranch = body.path("repository").path("default_branch").asText("");
+        return !body.path("deleted").asBoolean(false)
+                && body.path("ref").asText("").equals("refs/heads/" + defaultBranch);
+    }
+
+    private ZonedDateTime parseDate(JsonNode value) {
+        if (value == null || !value.isTextual()) {
+            return ZonedDateTime.now();
+        }
+        return OffsetDateTime.parse(value.asText()).toInstant().atZone(ZoneId.systemDefault());
+    }
+}
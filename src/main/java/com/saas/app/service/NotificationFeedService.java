@@ -0,0 +1,292 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubOrganization;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.NotificationEvent;
+import com.saas.app.model.OrgSubscription;
+import com.saas.app.model.RepoNotification;
+import com.saas.app.model.RepoSubscription;
+import com.saas.app.repository.NotificationEventRepository;
+import com.saas.app.repository.OrgSubscriptionRepository;
+import com.saas.app.repository.RepoSubscriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Fan-out-on-read notifications, used with {@code app.notifications.fan-out=read}.
+ *
+ * Activity is written once per repository as a {@link NotificationEvent}
+ * instead of once per subscriber. Every subscription keeps a read cursor,
+ * and a user's notifications are the events of their subscribed
+ * repositories and organizations merged at read time; the events past the
+ * cursors are unread. They are handed out as {@link RepoNotification}s that
+ * are not stored, so the API looks the same in both modes.
+ *
+ * A cursor marks everything up to it as read, so marking one event as read
+ * also marks the older events of the same subscription. Clearing moves a
+ * second, cleared cursor, and events up to it are no longer listed.
+ */
+@Service
+public class NotificationFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFeedService.class);
+
+    private final NotificationEventRepository eventRepository;
+    private final RepoSubscriptionRepository subscriptionRepository;
+    private final OrgSubscriptionRepository orgSubscriptionRepository;
+
+    @Autowired
+    public NotificationFeedService(NotificationEventRepository eventRepository,
+                                   RepoSubscriptionRepository subscriptionRepository,
+                                   OrgSubscriptionRepository orgSubscriptionRepository) {
+        this.eventRepository = eventRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.orgSubscriptionRepository = orgSubscriptionRepository;
+    }
+
+    /**
+     * Records the latest activity of a repository for its subscribers, once.
+     * Nothing is written when no subscriber wants notifications or the
+     * activity has been recorded already.
+     *
+     * @param repository The repository with new activity
+     * @param message The notification message
+     * @return The number of events written, 0 or 1
+     */
+    @Transactional
+    public int recordRepositoryActivity(GitHubRepository repository, String message) {
+        ZonedDateTime activityAt = repository.getLastActivityAt();
+        if (activityAt == null
+                || !subscriptionRepository.existsByRepositoryIdAndNotificationsEnabledTrue(repository.getId())
+                || eventRepository.existsByRepositoryIdAndOrganizationIsNullAndOccurredAtGreaterThanEqual(
+                        repository.getId(), activityAt)) {
+            return 0;
+        }
+
+        NotificationEvent event = eventRepository.save(new NotificationEvent(repository, null, message, activityAt));
+        logger.info("Recorded notification event {} for repository {}/{}",
+                event.getId(), repository.getOwner(), repository.getName());
+        return 1;
+    }
+
+    /**
+     * Records new activity in one of an organization's repositories for the
+     * organization's subscribers
+     *
+     * @return The number of events written, 0 or 1
+     */
+    @Transactional
+    public int recordOrganizationActivity(GitHubRepository repository, GitHubOrganization organization,
+                                          String message) {
+        if (!orgSubscriptionRepository.existsByOrganizationIdAndNotificationsEnabledTrue(organization.getId())) {
+            return 0;
+        }
+
+        NotificationEvent event = eventRepository.save(
+                new NotificationEvent(repository, organization, message, repository.getLastActivityAt()));
+        logger.info("Recorded notification event {} for organization {} about repository {}/{}",
+                event.getId(), organization.getLogin(), repository.getOwner(), repository.getName());
+        return 1;
+    }
+
+    /**
+     * Gets a page of the events a user sees, each as a notification that is
+     * read when it is at or before its subscription's cursor
+     */
+    public Page<RepoNotification> getNotifications(String email, Pageable pageable) {
+        Cursors cursors = loadCursors(email);
+        return eventRepository.findVisible(email, pageable)
+                .map(event -> toNotification(event, email, cursors.isRead(event), 1, event.getCreatedAt()));
+    }
+
+    /**
+     * Gets one notification per repository with unread events, the most
+     * recent first. Its id is the newest event's, its event count the number
+     * of unread events and its creation time the first unread event's.
+     */
+    public List<RepoNotification> getUnread(String email) {
+        List<Object[]> rows = eventRepository.summarizeUnread(email);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> newestIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            newestIds.add((Long) row[0]);
+        }
+        Map<Long, NotificationEvent> newest = new HashMap<>();
+        for (NotificationEvent event : eventRepository.findAllById(newestIds)) {
+            newest.put(event.getId(), event);
+        }
+
+        List<RepoNotification> notifications = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            NotificationEvent event = newest.get((Long) row[0]);
+            if (event != null) {
+                notifications.add(toNotification(event, email, false,
+                        ((Number) row[1]).intValue(), (ZonedDateTime) row[2]));
+            }
+        }
+        notifications.sort(Comparator.comparing(RepoNotification::getLastSeenAt).reversed());
+        return notifications;
+    }
+
+    /**
+     * Counts the repositories with unread events, the same as the number of
+     * notifications {@link #getUnread} returns
+     */
+    public long getUnreadCount(String email) {
+        return eventRepository.countUnreadRepositories(email);
+    }
+
+    /**
+     * Moves the cursor of the subscription the event belongs to up to the event
+     *
+     * @return true if the event was found and the user sees it, false otherwise
+     */
+    @Transactional
+    public boolean markAsRead(Long id, String email) {
+        Optional<NotificationEvent> event = eventRepository.findById(id);
+        if (event.isEmpty() || !loadCursors(email).isVisible(event.get())) {
+            return false;
+        }
+        advanceTo(email, List.of(event.get()));
+        return true;
+    }
+
+    /**
+     * Moves the cursors of the subscriptions the events belong to up to the
+     * newest of them. Ids of events the user does not see are ignored.
+     *
+     * @return The number of notifications no longer unread
+     */
+    @Transactional
+    public int markAsRead(String email, Collection<Long> ids) {
+        long unreadBefore = getUnreadCount(email);
+        advanceTo(email, eventRepository.findAllById(ids));
+        return (int) (unreadBefore - getUnreadCount(email));
+    }
+
+    /**
+     * Moves every cursor of a user up to the newest event created before the
+     * given time, or to the newest event when the time is null
+     *
+     * @return The number of notifications no longer unread
+     */
+    @Transactional
+    public int markAsReadBefore(String email, ZonedDateTime before) {
+        long unreadBefore = getUnreadCount(email);
+        subscriptionRepository.advanceReadCursors(email, null, null, before);
+        orgSubscriptionRepository.advanceReadCursors(email, null, null, before);
+        return (int) (unreadBefore - getUnreadCount(email));
+    }
+
+    /**
+     * Moves every cursor of a user to the newest event
+     *
+     * @return The number of notifications no longer unread
+     */
+    @Transactional
+    public int markAllAsRead(String email) {
+        return markAsReadBefore(email, null);
+    }
+
+    /**
+     * Moves every cursor of a user, cleared and read, to the newest event,
+     * so the events so far are no longer listed
+     */
+    @Transactional
+    public void clearAll(String email) {
+        int cleared = subscriptionRepository.clearCursors(email) + orgSubscriptionRepository.clearCursors(email);
+        logger.info("Cleared notification events of {} subscriptions of {}", cleared, email);
+    }
+
+    private void advanceTo(String email, Iterable<NotificationEvent> events) {
+        Map<Long, Long> repositoryCursors = new HashMap<>();
+        Map<Long, Long> organizationCursors = new HashMap<>();
+        for (NotificationEvent event : events) {
+            if (event.getOrganization() == null) {
+                repositoryCursors.merge(event.getRepository().getId(), event.getId(), Math::max);
+            } else {
+                organizationCursors.merge(event.getOrganization().getId(), event.getId(), Math::max);
+            }
+        }
+        repositoryCursors.forEach((repositoryId, upTo) ->
+                subscriptionRepository.advanceReadCursors(email, repositoryId, upTo, null));
+        organizationCursors.forEach((organizationId, upTo) ->
+                orgSubscriptionRepository.advanceReadCursors(email, organizationId, upTo, null));
+    }
+
+    private Cursors loadCursors(String email) {
+        Cursors cursors = new Cursors();
+        for (RepoSubscription subscription : subscriptionRepository.findByEmail(email)) {
+            cursors.repositories.put(subscription.getRepository().getId(),
+                    new Cursor(orZero(subscription.getReadCursor()), orZero(subscription.getClearedCursor())));
+        }
+        for (OrgSubscription subscription : orgSubscriptionRepository.findByEmail(email)) {
+            cursors.organizations.put(subscription.getOrganization().getId(),
+                    new Cursor(orZero(subscription.getReadCursor()), orZero(subscription.getClearedCursor())));
+        }
+        return cursors;
+    }
+
+    private static long orZero(Long cursor) {
+        return cursor != null ? cursor : 0L;
+    }
+
+    private static RepoNotification toNotification(NotificationEvent event, String email, boolean read,
+                                                   int eventCount, ZonedDateTime firstSeenAt) {
+        RepoNotification notification = new RepoNotification(email, event.getRepository(), event.getMessage());
+        notification.setId(event.getId());
+        notification.setRead(read);
+        notification.setCreatedAt(firstSeenAt);
+        notification.setEventCount(eventCount);
+        notification.setLastSeenAt(event.getCreatedAt());
+        return notification;
+    }
+
+    /**
+     * Read and cleared cursor of one subscription
+     */
+    private record Cursor(long read, long cleared) {
+    }
+
+    /**
+     * Cursors of one user, by repository and organization id
+     */
+    private static class Cursors {
+
+        private final Map<Long, Cursor> repositories = new HashMap<>();
+        private final Map<Long, Cursor> organizations = new HashMap<>();
+
+        private Cursor cursorFor(NotificationEvent event) {
+            return event.getOrganization() == null
+                    ? repositories.get(event.getRepository().getId())
+                    : organizations.get(event.getOrganization().getId());
+        }
+
+        boolean isVisible(NotificationEvent event) {
+            Cursor cursor = cursorFor(event);
+            return cursor != null && event.getId() > cursor.cleared();
+        }
+
+        boolean isRead(NotificationEvent event) {
+            Cursor cursor = cursorFor(event);
+            return cursor != null && event.getId() <= cursor.read();
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.saas.app.service;
 
+import com.saas.app.model.GitHubOrganization;
 import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.NotificationCounter;
 import com.saas.app.model.RepoNotification;
-import com.saas.app.model.RepoSubscription;
+import com.saas.app.repository.NotificationCounterRepository;
 import com.saas.app.repository.NotificationRepository;
+import com.saas.app.repository.OrgSubscriptionRepository;
+import com.saas.app.repository.RepoSubscriptionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,30 +28,106 @@ public class NotificationService {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
     
+    static final int MAX_IDS_PER_REQUEST = 1000;
+    
     private final NotificationRepository notificationRepository;
-    private final RepoSubscriptionService subscriptionService;
+    private final RepoSubscriptionRepository subscriptionRepository;
+    private final OrgSubscriptionRepository orgSubscriptionRepository;
+    private final NotificationCounterRepository counterRepository;
+    private final NotificationFeedService feedService;
+    
+    // "write" stores a notification per subscriber, "read" an event per repository (see NotificationFeedService)
+    @Value("${app.notifications.fan-out:write}")
+    private String fanOut;
     
     @Autowired
-    public NotificationService(NotificationRepository notificationRepository, RepoSubscriptionService subscriptionService) {
+    public NotificationService(NotificationRepository notificationRepository,
+                               RepoSubscriptionRepository subscriptionRepository,
+                               OrgSubscriptionRepository orgSubscriptionRepository,
+                               NotificationCounterRepository counterRepository,
+                               NotificationFeedService feedService) {
         this.notificationRepository = notificationRepository;
-        this.subscriptionService = subscriptionService;
+        this.subscriptionRepository = subscriptionRepository;
+        this.orgSubscriptionRepository = orgSubscriptionRepository;
+        this.counterRepository = counterRepository;
+        this.feedService = feedService;
     }
     
+    /**
+     * Notifies the subscriptions of a repository that have not been told
+     * about its latest activity yet. A subscriber who still has an unread
+     * notification about the repository gets it updated in place, with one
+     * more event, instead of a new one; the others get a new notification.
+     * Each step is one set-based statement, so the cost does not grow with a
+     * statement per subscriber.
+     * 
+     * @param repository The repository with new activity
+     * @return The number of notifications created or updated
+     */
     @Transactional
-    public RepoNotification createNotification(RepoSubscription subscription, String message) {
-        GitHubRepository repository = subscription.getRepository();
-        String email = subscription.getEmail();
+    public int notifySubscribers(GitHubRepository repository) {
+        ZonedDateTime activityAt = repository.getLastActivityAt();
+        if (activityAt == null) {
+            return 0;
+        }
+        
+        String message = String.format("New activity detected in %s/%s",
+                repository.getOwner(), repository.getName());
+        if (isFanOutOnRead()) {
+            return feedService.recordRepositoryActivity(repository, message);
+        }
+        ZonedDateTime now = ZonedDateTime.now();
         
-        RepoNotification notification = new RepoNotification(email, repository, message);
-        notification = notificationRepository.save(notification);
+        // These statements select the same subscriptions, so they all run before marking them;
+        // counters only grow for subscribers without an unread notification, so count before inserting
+        int coalesced = notificationRepository.coalesceForRepositorySubscribers(
+                repository.getId(), message, now, activityAt);
+        counterRepository.createForRepositorySubscribers(repository.getId(), activityAt);
+        counterRepository.incrementForRepositorySubscribers(repository.getId(), activityAt);
+        int inserted = notificationRepository.insertForRepositorySubscribers(
+                repository.getId(), message, now, activityAt);
+        int notified = coalesced + inserted;
+        if (notified > 0) {
+            subscriptionRepository.markNotified(repository.getId(), now, activityAt);
+        }
+        
+        logger.info("Notified {} subscribers about repository {}/{} ({} coalesced)",
+                notified, repository.getOwner(), repository.getName(), coalesced);
+        return notified;
+    }
+    
+    /**
+     * Notifies the organization's subscribers about new activity in one of
+     * its repositories, updating their unread notifications about it in
+     * place and creating the missing ones with one INSERT ... SELECT
+     * 
+     * @param repository The repository with new activity
+     * @param organization The organization the repository belongs to
+     * @return The number of notifications created or updated
+     */
+    @Transactional
+    public int notifyOrgSubscribers(GitHubRepository repository, GitHubOrganization organization) {
+        String message = String.format("New activity detected in %s/%s",
+                repository.getOwner(), repository.getName());
+        if (isFanOutOnRead()) {
+            return feedService.recordOrganizationActivity(repository, organization, message);
+        }
+        ZonedDateTime now = ZonedDateTime.now();
         
-        // Mark the subscription as notified to prevent duplicate notifications
-        subscriptionService.markNotified(subscription);
+        int coalesced = notificationRepository.coalesceForOrganizationSubscribers(
+                organization.getId(), repository.getId(), message, now);
+        counterRepository.createForOrganizationSubscribers(organization.getId());
+        counterRepository.incrementForOrganizationSubscribers(organization.getId(), repository.getId());
+        int inserted = notificationRepository.insertForOrganizationSubscribers(
+                organization.getId(), repository.getId(), message, now);
+        int notified = coalesced + inserted;
+        if (notified > 0) {
+            orgSubscriptionRepository.markNotified(organization.getId(), now);
+        }
         
-        logger.info("Created notification {} for user {} about repository {}/{}",
-                notification.getId(), email, repository.getOwner(), repository.getName());
-                
-        return notification;
+        logger.info("Notified {} organization subscribers about repository {}/{} ({} coalesced)",
+                notified, repository.getOwner(), repository.getName(), coalesced);
+        return notified;
     }
     
     /**
@@ -54,11 +138,52 @@ public class NotificationService {
      * @return A page of notifications
      */
     public Page<RepoNotification> getUserNotifications(String email, Pageable pageable) {
+        if (isFanOutOnRead()) {
+            return feedService.getNotifications(email, pageable);
+        }
         return notificationRepository.findByEmail(email, pageable);
     }
     
+    /**
+     * Get the unread notifications of a user, the most recently updated first
+     */
     public List<RepoNotification> getUnreadNotifications(String email) {
-        return notificationRepository.findByEmailAndReadFalseOrderByCreatedAtDesc(email);
+        if (isFanOutOnRead()) {
+            return feedService.getUnread(email);
+        }
+        return notificationRepository.findUnread(email);
+    }
+    
+    /**
+     * Gets the number of unread notifications of a user from the user's
+     * counter; users without a counter yet are counted directly
+     * 
+     * @param email The user's email
+     * @return The number of unread notifications
+     */
+    public long getUnreadCount(String email) {
+        if (isFanOutOnRead()) {
+            return feedService.getUnreadCount(email);
+        }
+        return counterRepository.findById(email)
+                .map(NotificationCounter::getUnread)
+                .orElseGet(() -> (long) notificationRepository.countByEmailAndReadFalse(email));
+    }
+    
+    /**
+     * Recounts every unread counter from the notifications, correcting any
+     * drift from concurrent updates
+     * 
+     * @return The number of counters recounted
+     */
+    @Transactional
+    public int reconcileUnreadCounters() {
+        if (isFanOutOnRead()) {
+            // Unread counts are computed from the read cursors, there are no counters
+            return 0;
+        }
+        counterRepository.createMissing();
+        return counterRepository.recountAll();
     }
     
     /**
@@ -70,10 +195,16 @@ public class NotificationService {
      */
     @Transactional
     public boolean markAsRead(Long id, String email) {
+        if (isFanOutOnRead()) {
+            return feedService.markAsRead(id, email);
+        }
         Optional<RepoNotification> notification = notificationRepository.findByIdAndEmail(id, email);
         
         if (notification.isPresent()) {
             RepoNotification n = notification.get();
+            if (!n.isRead()) {
+                counterRepository.subtract(email, 1);
+            }
             n.setRead(true);
             notificationRepository.save(n);
             return true;
@@ -83,25 +214,93 @@ public class NotificationService {
     }
     
     /**
-     * Mark all notifications for a user as read
+     * Mark all notifications for a user as read, in a single UPDATE
      * 
      * @param email The user's email
      * @return The number of notifications marked as read
      */
     @Transactional
     public int markAllAsRead(String email) {
-        List<RepoNotification> unreadNotifications = notificationRepository.findByEmailAndReadFalseOrderByCreatedAtDesc(email);
-        
-        for (RepoNotification notification : unreadNotifications) {
-            notification.setRead(true);
-            notificationRepository.save(notification);
+        if (isFanOutOnRead()) {
+            return feedService.markAllAsRead(email);
         }
-        
-        return unreadNotifications.size();
+        return countAsRead(email, notificationRepository.markAllAsRead(email));
+    }
+    
+    /**
+     * Mark the given notifications of a user as read, in a single UPDATE.
+     * Ids of other users' notifications are ignored.
+     * 
+     * @param email The user's email
+     * @param ids The notification IDs, at most {@value #MAX_IDS_PER_REQUEST}
+     * @return The number of unread notifications marked as read
+     * @throws IllegalArgumentException if too many ids are given
+     */
+    @Transactional
+    public int markAsRead(String email, Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        if (ids.size() > MAX_IDS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_IDS_PER_REQUEST + " ids can be marked at once");
+        }
+        if (isFanOutOnRead()) {
+            return feedService.markAsRead(email, ids);
+        }
+        return countAsRead(email, notificationRepository.markAsReadByIds(email, ids));
+    }
+    
+    /**
+     * Mark every notification of a user up to a point as read, in a single
+     * UPDATE. The point is either a time, or the cursor of the newest
+     * notification the client has seen (see {@link RepoNotification#getCursor()}).
+     * 
+     * @param email The user's email
+     * @param before Notifications last updated before this time are marked
+     * @param cursor Notifications at or before this cursor are marked
+     * @return The number of unread notifications marked as read
+     * @throws IllegalArgumentException unless exactly one of before and cursor is given
+     */
+    @Transactional
+    public int markAsReadUpTo(String email, ZonedDateTime before, Long cursor) {
+        if ((before == null) == (cursor == null)) {
+            throw new IllegalArgumentException("Exactly one of before and cursor is required");
+        }
+        if (isFanOutOnRead()) {
+            // An event's cursor is its creation time, which is never coalesced into
+            return feedService.markAsReadBefore(email, before != null
+                    ? before : RepoNotification.cursorTime(cursor).plus(1, ChronoUnit.MICROS));
+        }
+        return countAsRead(email, before != null
+                ? notificationRepository.markAsReadCreatedBefore(email, before)
+                : notificationRepository.markAsReadUpTo(email, RepoNotification.cursorTime(cursor)));
     }
     
+    /**
+     * Deletes all notifications of a user. Events are shared between users
+     * with {@code app.notifications.fan-out=read}, so the user's
+     * subscriptions are moved past them instead.
+     * 
+     * @param email The user's email
+     */
     @Transactional
     public void clearAllNotifications(String email) {
+        if (isFanOutOnRead()) {
+            feedService.clearAll(email);
+            return;
+        }
         notificationRepository.deleteByEmail(email);
+        counterRepository.deleteById(email);
+    }
+    
+    private boolean isFanOutOnRead() {
+        return "read".equalsIgnoreCase(fanOut);
+    }
+    
+    private int countAsRead(String email, int marked) {
+        if (marked > 0) {
+            counterRepository.subtract(email, marked);
+        }
+        return marked;
     }
 }
\ No newline at end of file
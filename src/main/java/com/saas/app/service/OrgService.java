@@ -0,0 +1,135 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubOrganization;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.repository.OrgSubscriptionRepository;
+import com.saas.app.repository.OrganizationRepository;
+import com.saas.app.repository.RepositoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class OrgService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrgService.class);
+    
+    private final OrganizationRepository organizationRepository;
+    private final OrgSubscriptionRepository orgSubscriptionRepository;
+    private final RepositoryRepository repositoryRepository;
+    private final GitHubService gitHubService;
+    private final GitHubEventsService eventsService;
+    private final ActivityCache activityCache;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public OrgService(OrganizationRepository organizationRepository,
+                      OrgSubscriptionRepository orgSubscriptionRepository,
+                      RepositoryRepository repositoryRepository,
+                      GitHubService gitHubService,
+                      GitHubEventsService eventsService,
+                      ActivityCache activityCache,
+                      NotificationService notificationService,
+                      TransactionTemplate transactionTemplate) {
+        this.organizationRepository = organizationRepository;
+        this.orgSubscriptionRepository = orgSubscriptionRepository;
+        this.repositoryRepository = repositoryRepository;
+        this.gitHubService = gitHubService;
+        this.eventsService = eventsService;
+        this.activityCache = activityCache;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+    }
+    
+    /**
+     * Gets or creates an organization by login
+     * 
+     * @param login Organization login
+     * @return The organization entity
+     */
+    @Transactional
+    public GitHubOrganization getOrCreateOrganization(String login) {
+        Optional<GitHubOrganization> existing = organizationRepository.findByLoginIgnoreCase(login);
+        
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        
+        // Validate organization exists on GitHub before creating
+        if (!gitHubService.validateOrganization(login)) {
+            throw new IllegalArgumentException("Organization " + login + " does not exist or is not accessible");
+        }
+        
+        return organizationRepository.save(new GitHubOrganization(login));
+    }
+    
+    public Optional<GitHubOrganization> findOrganization(String login) {
+        return organizationRepository.findByLoginIgnoreCase(login);
+    }
+    
+    /**
+     * Checks one organization for new activity with a single read of its
+     * events feed, and notifies its subscribers once per repository with
+     * new activity. The first check only records where the feed stands.
+     * GitHub is read outside any transaction; the outcome is stored in one
+     * short transaction afterwards.
+     * 
+     * @param loaded The organization to check
+     * @return The repositories in which new activity was found
+     */
+    public List<GitHubRepository> checkForNewActivity(GitHubOrganization loaded) {
+        // Another node may have moved the watermark since the caller loaded the organization
+        GitHubOrganization checked = organizationRepository.findById(loaded.getId()).orElse(loaded);
+        
+        GitHubEventsService.OrgEventsCheck check = eventsService.check(checked);
+        
+        return transactionTemplate.execute(status -> recordCheck(checked, check));
+    }
+    
+    private List<GitHubRepository> recordCheck(GitHubOrganization checked, GitHubEventsService.OrgEventsCheck check) {
+        GitHubOrganization organization = organizationRepository.findById(checked.getId()).orElse(checked);
+        
+        // Give the lease back, so the organization can move to another node as soon as the shares change
+        organization.setLeaseOwner(null);
+        organization.setLeaseUntil(null);
+        if (!check.polled()) {
+            organizationRepository.save(organization);
+            return List.of();
+        }
+        
+        boolean seeding = checked.getEventWatermark() == null;
+        organization.setEventWatermark(check.newestEventId());
+        organization.markAsChecked();
+        organizationRepository.save(organization);
+        
+        if (seeding || check.repositories().isEmpty()) {
+            return List.of();
+        }
+        
+        List<GitHubRepository> withNewActivity = new ArrayList<>();
+        for (String name : check.repositories()) {
+            // The event proves the repository exists, so it is stored without asking GitHub again
+            GitHubRepository repository = repositoryRepository
+                    .findByOwnerIgnoreCaseAndNameIgnoreCase(organization.getLogin(), name)
+                    .orElseGet(() -> new GitHubRepository(organization.getLogin(), name));
+            repository.markActivity();
+            repository = repositoryRepository.save(repository);
+            activityCache.invalidate(repository.getOwner(), repository.getName());
+            
+            notificationService.notifyOrgSubscribers(repository, organization);
+            withNewActivity.add(repository);
+        }
+        
+        logger.info("Found new activity in {} repositories of organization {}",
+                withNewActivity.size(), organization.getLogin());
+        return withNewActivity;
+    }
+}
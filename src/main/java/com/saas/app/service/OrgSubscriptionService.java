@@ -0,0 +1,151 @@
+package com.saas.app.service;
+
+import com.saas.app.exception.SubscriptionException;
+import com.saas.app.model.GitHubOrganization;
+import com.saas.app.model.OrgSubscription;
+import com.saas.app.repository.OrgSubscriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Manages "owner/*" subscriptions, which cover every repository of an organization
+ */
+@Service
+public class OrgSubscriptionService {
+    
+    public static final String ALL_REPOSITORIES = "*";
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrgSubscriptionService.class);
+    
+    private final OrgSubscriptionRepository orgSubscriptionRepository;
+    private final OrgService orgService;
+    private final RepoSubscriptionService repoSubscriptionService;
+    
+    public OrgSubscriptionService(OrgSubscriptionRepository orgSubscriptionRepository,
+                                  OrgService orgService,
+                                  RepoSubscriptionService repoSubscriptionService) {
+        this.orgSubscriptionRepository = orgSubscriptionRepository;
+        this.orgService = orgService;
+        this.repoSubscriptionService = repoSubscriptionService;
+    }
+    
+    /**
+     * Checks if a repository name stands for all repositories of the owner
+     */
+    public static boolean isWildcard(String repoName) {
+        return ALL_REPOSITORIES.equals(repoName);
+    }
+    
+    /**
+     * Subscribe a user to the activity of every repository of an organization
+     * 
+     * @param email User's email address
+     * @param owner Organization login
+     * @return The created subscription
+     * @throws IllegalArgumentException if the email is invalid
+     * @throws SubscriptionException if the organization is invalid or user is already subscribed
+     */
+    @Transactional
+    public OrgSubscription subscribe(String email, String owner) {
+        repoSubscriptionService.validateEmail(email);
+        
+        try {
+            GitHubOrganization organization = orgService.getOrCreateOrganization(owner);
+            
+            if (orgSubscriptionRepository.existsByEmailAndOrganization(email, organization)) {
+                throw new SubscriptionException("Already subscribed to " + owner + "/*");
+            }
+            
+            OrgSubscription subscription = orgSubscriptionRepository.save(new OrgSubscription(email, organization));
+            logger.info("User {} subscribed to organization {}", email, owner);
+            return subscription;
+            
+        } catch (IllegalArgumentException e) {
+            throw new SubscriptionException("Invalid organization: " + owner);
+        }
+    }
+    
+    /**
+     * Unsubscribe a user from an organization
+     * 
+     * @param email User's email address
+     * @param owner Organization login
+     * @throws SubscriptionException if the user is not subscribed to the organization
+     */
+    @Transactional
+    public void unsubscribe(String email, String owner) {
+        repoSubscriptionService.validateEmail(email);
+        
+        GitHubOrganization organization = findOrganization(owner);
+        if (!orgSubscriptionRepository.existsByEmailAndOrganization(email, organization)) {
+            throw new SubscriptionException("Not subscribed to " + owner + "/*");
+        }
+        
+        orgSubscriptionRepository.deleteByEmailAndOrganization(email, organization);
+        logger.info("User {} unsubscribed from organization {}", email, owner);
+    }
+    
+    /**
+     * Get all organization subscriptions for a user
+     * 
+     * @param email User's email address
+     * @return List of organization subscriptions
+     * @throws IllegalArgumentException if the email is invalid
+     */
+    public List<OrgSubscription> getUserSubscriptions(String email) {
+        repoSubscriptionService.validateEmail(email);
+        return orgSubscriptionRepository.findByEmail(email);
+    }
+    
+    /**
+     * Get all subscriptions for an organization
+     * 
+     * @param owner Organization login
+     * @return List of user subscriptions
+     */
+    public List<OrgSubscription> getOrganizationSubscriptions(String owner) {
+        try {
+            return orgSubscriptionRepository.findByOrganization(findOrganization(owner));
+        } catch (SubscriptionException e) {
+            return List.of();
+        }
+    }
+    
+    /**
+     * Update notification status for an organization subscription
+     * 
+     * @param email User's email address
+     * @param owner Organization login
+     * @param enabled Whether notifications should be enabled
+     * @return The updated subscription
+     * @throws SubscriptionException if the subscription doesn't exist
+     */
+    @Transactional
+    public OrgSubscription updateNotificationStatus(String email, String owner, boolean enabled) {
+        repoSubscriptionService.validateEmail(email);
+        
+        OrgSubscription subscription = orgSubscriptionRepository
+                .findByEmailAndOrganization(email, findOrganization(owner))
+                .orElseThrow(() -> new SubscriptionException("No subscription found for " + owner + "/*"));
+        
+        subscription.setNotificationsEnabled(enabled);
+        if (enabled) {
+            subscription.setLastNotificationAt(null);
+        }
+        
+        logger.info("Notifications {} for user {} on organization {}",
+                enabled ? "enabled" : "disabled", email, owner);
+        
+        return orgSubscriptionRepository.save(subscription);
+    }
+    
+    private GitHubOrganization findOrganization(String owner) {
+        Optional<GitHubOrganization> organization = orgService.findOrganization(owner);
+        return organization.orElseThrow(() -> new SubscriptionException("Not subscribed to " + owner + "/*"));
+    }
+}
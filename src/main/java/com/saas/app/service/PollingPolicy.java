@@ -0,0 +1,148 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.util.Hashing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * Decides when each repository is checked next. A repository where activity
+ * was just found is checked again after the minimum interval; every quiet
+ * check doubles the interval up to the maximum. Repositories with a lot of
+ * recorded activity back off at half the rate, and repositories that have
+ * been dormant for long are not checked more often than a tenth of their
+ * dormant time.
+ *
+ * Next checks are not placed exactly one interval after the last one. Each
+ * repository gets a fixed slot within its interval, derived from its id, and
+ * is checked at the first occurrence of that slot at least
+ * (1 - jitter-fraction) of the interval from now. Repositories checked at the
+ * same moment, e.g. right after a restart, thereby spread evenly over the
+ * next interval instead of all coming due together again.
+ *
+ * Failed checks work like a circuit breaker. After failure-threshold failures
+ * in a row the repository is not checked for the failure backoff, which
+ * doubles with every further failure up to the maximum. A successful check
+ * closes the circuit again.
+ */
+@Service
+public class PollingPolicy {
+
+    // Enough doublings to reach any sensible maximum without overflowing
+    private static final int MAX_EXPONENT = 20;
+
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final int hotActivityCount;
+    private final double jitterFraction;
+    private final int failureThreshold;
+    private final Duration failureBackoff;
+    private final Duration maxFailureBackoff;
+
+    public PollingPolicy(
+            @Value("${app.schedule.min-interval-minutes:1}") long minIntervalMinutes,
+            @Value("${app.schedule.max-interval-minutes:1440}") long maxIntervalMinutes,
+            @Value("${app.schedule.hot-activity-count:50}") int hotActivityCount,
+            @Value("${app.schedule.jitter-fraction:0.5}") double jitterFraction,
+            @Value("${app.schedule.failure-threshold:3}") int failureThreshold,
+            @Value("${app.schedule.failure-backoff-minutes:30}") long failureBackoffMinutes,
+            @Value("${app.schedule.max-failure-backoff-hours:168}") long maxFailureBackoffHours) {
+        this.minInterval = Duration.ofMinutes(minIntervalMinutes);
+        this.maxInterval = Duration.ofMinutes(Math.max(minIntervalMinutes, maxIntervalMinutes));
+        this.hotActivityCount = hotActivityCount;
+        this.jitterFraction = Math.max(0, Math.min(1, jitterFraction));
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.failureBackoff = Duration.ofMinutes(failureBackoffMinutes);
+        this.maxFailureBackoff = Duration.ofHours(maxFailureBackoffHours);
+    }
+
+    /**
+     * Sets the next check time of a repository that was just checked
+     *
+     * @param repository The repository that was checked
+     * @param foundActivity Whether the check found new activity
+     */
+    public void scheduleNextCheck(GitHubRepository repository, boolean foundActivity) {
+        repository.clearFailures();
+        int quietChecks = foundActivity ? 0 : repository.getQuietChecks() + 1;
+        repository.setQuietChecks(quietChecks);
+        repository.setNextCheckAt(nextSlot(repository, ZonedDateTime.now(), intervalFor(repository, quietChecks)));
+    }
+
+    /**
+     * Gets the repository's slot that comes first at or after
+     * {@code now + interval * (1 - jitterFraction)}. Slots repeat every
+     * interval at a phase fixed by the repository id, so the result is never
+     * later than {@code now + interval * (2 - jitterFraction)}.
+     */
+    ZonedDateTime nextSlot(GitHubRepository repository, ZonedDateTime now, Duration interval) {
+        long intervalMillis = interval.toMillis();
+        if (jitterFraction == 0 || intervalMillis <= 0) {
+            return now.plus(interval);
+        }
+
+        long id = repository.getId() != null ? repository.getId() : 0L;
+        long phase = (long) (Hashing.unitInterval(id) * intervalMillis);
+        long earliest = now.toInstant().toEpochMilli() + intervalMillis - (long) (intervalMillis * jitterFraction);
+        long slot = Math.floorDiv(earliest - phase, intervalMillis) * intervalMillis + phase;
+        if (slot < earliest) {
+            slot += intervalMillis;
+        }
+        return now.plus(Duration.ofMillis(slot - now.toInstant().toEpochMilli()));
+    }
+
+    /**
+     * Records a failed check of a repository and opens its circuit once
+     * failure-threshold checks in a row have failed. Below the threshold the
+     * repository stays due and is retried in the next run.
+     *
+     * @param repository The repository whose check failed
+     * @param error What went wrong
+     */
+    public void scheduleAfterFailure(GitHubRepository repository, String error) {
+        repository.markFailure(error);
+        int failures = repository.getFailureCount();
+        if (failures < failureThreshold) {
+            return;
+        }
+
+        Duration backoff = failureBackoff.multipliedBy(1L << Math.min(failures - failureThreshold, MAX_EXPONENT));
+        if (backoff.compareTo(maxFailureBackoff) > 0) {
+            backoff = maxFailureBackoff;
+        }
+        ZonedDateTime openUntil = ZonedDateTime.now().plus(backoff);
+        repository.setCircuitOpenUntil(openUntil);
+        repository.setNextCheckAt(openUntil);
+    }
+
+    /**
+     * Checks if a repository's circuit is open or half-open, i.e. it failed
+     * too often to be checked at its regular interval
+     */
+    public boolean isTripped(GitHubRepository repository) {
+        return repository.getFailureCount() >= failureThreshold;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    Duration intervalFor(GitHubRepository repository, int quietChecks) {
+        int exponent = repository.getActivityCount() != null && repository.getActivityCount() >= hotActivityCount
+                ? quietChecks / 2
+                : quietChecks;
+        Duration interval = minInterval.multipliedBy(1L << Math.min(exponent, MAX_EXPONENT));
+
+        if (quietChecks > 0 && repository.getLastActivityAt() != null) {
+            Duration dormant = Duration.between(repository.getLastActivityAt(), ZonedDateTime.now());
+            if (dormant.dividedBy(10).compareTo(interval) > 0) {
+                interval = dormant.dividedBy(10);
+            }
+        }
+
+        return interval.compareTo(maxInterval) > 0 ? maxInterval : interval;
+    }
+}
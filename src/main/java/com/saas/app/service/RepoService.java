@@ -1,17 +1,30 @@
 package com.saas.app.service;
 
+import com.saas.app.exception.GitHubApiException;
 import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubActivityFeed;
 import com.saas.app.model.GitHubRepository;
 import com.saas.app.repository.RepositoryRepository;
+import com.saas.app.util.GitHubCircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class RepoService {
@@ -20,11 +33,33 @@ public class RepoService {
     
     private final RepositoryRepository repositoryRepository;
     private final GitHubService gitHubService;
+    private final ActivityService activityService;
+    private final ActivityCache activityCache;
+    private final GitHubEventsService eventsService;
+    private final TransactionTemplate transactionTemplate;
+    private final PollingPolicy pollingPolicy;
+    private final GitHubCircuitBreaker circuitBreaker;
+
+    @Value("${app.github.detection-mode:categories}")
+    private String detectionMode;
 
     @Autowired
-    public RepoService(RepositoryRepository repositoryRepository, GitHubService gitHubService) {
+    public RepoService(RepositoryRepository repositoryRepository,
+                       GitHubService gitHubService,
+                       ActivityService activityService,
+                       ActivityCache activityCache,
+                       GitHubEventsService eventsService,
+                       TransactionTemplate transactionTemplate,
+                       PollingPolicy pollingPolicy,
+                       GitHubCircuitBreaker circuitBreaker) {
         this.repositoryRepository = repositoryRepository;
         this.gitHubService = gitHubService;
+        this.activityService = activityService;
+        this.activityCache = activityCache;
+        this.eventsService = eventsService;
+        this.transactionTemplate = transactionTemplate;
+        this.pollingPolicy = pollingPolicy;
+        this.circuitBreaker = circuitBreaker;
     }
     
     /**
@@ -52,38 +87,277 @@ public class RepoService {
     }
     
     /**
-     * Checks for new activity in a repository
+     * Checks for new activity in a repository. Only items newer than the
+     * repository's per-category watermarks are fetched, and the watermarks
+     * are advanced to the newest item found.
+     * 
+     * GitHub is called outside of any transaction; the result is stored in
+     * a short transaction of its own, so concurrent checks of different
+     * repositories do not hold database connections while they wait on GitHub.
      * 
      * @param repository The repository to check
-     * @param limit Maximum number of activities to fetch
+     * @param limit Maximum number of activities to fetch per category
      * @return true if new activity was found
      */
-    @Transactional
     public boolean checkForNewActivity(GitHubRepository repository, int limit) {
-        repository.markAsChecked();
+        boolean seeding = !repository.getWatermarks().hasAny();
+        
+        Long eventId = null;
+        if (isEventsDetection()) {
+            Map<GitHubRepository, Long> eventIds = new HashMap<>();
+            if (checkEvents(List.of(repository), eventIds).isEmpty()) {
+                return false;
+            }
+            eventId = eventIds.get(repository);
+        }
+        
+        GitHubActivityFeed feed = gitHubService.getNewActivities(
+                repository.getOwner(), repository.getName(), repository.getWatermarks(), limit);
+        List<GitHubActivity> activities = feed.getActivities();
+        if (eventId != null) {
+            repository.getWatermarks().setEventId(eventId);
+        }
+        
+        mirror(repository, seeding, feed, limit);
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> recordCheck(repository, seeding, activities)));
+    }
+    
+    /**
+     * Checks if several repositories are best checked in one call, i.e.
+     * {@code app.github.fetch-mode} batches them over GraphQL
+     */
+    public boolean checksInBatches() {
+        return gitHubService.fetchesInBatches();
+    }
+    
+    /**
+     * Checks several repositories for new activity. Depending on
+     * {@code app.github.fetch-mode} the repositories are fetched one by one
+     * over REST or in batches over GraphQL. With
+     * {@code app.github.detection-mode=events} only repositories whose events
+     * feed shows something new are fetched at all. As with a single
+     * repository, GitHub is called outside of any transaction and each
+     * result is stored in a short transaction of its own.
+     * 
+     * @param repositories The repositories to check
+     * @param limit Maximum number of activities to fetch per category
+     * @return The repositories in which new activity was found
+     */
+    public List<GitHubRepository> checkForNewActivity(List<GitHubRepository> repositories, int limit) {
+        Set<GitHubRepository> seeding = repositories.stream()
+                .filter(repository -> !repository.getWatermarks().hasAny())
+                .collect(Collectors.toSet());
         
-        List<GitHubActivity> activities = gitHubService.getRepositoryActivities(
-                repository.getOwner(), repository.getName(), limit);
+        Map<GitHubRepository, Long> eventIds = new HashMap<>();
+        List<GitHubRepository> toFetch = isEventsDetection()
+                ? checkEvents(repositories, eventIds)
+                : repositories;
         
-        if (!activities.isEmpty()) {
-            ZonedDateTime latestActivity = activities.get(0).getCreatedAt();
-            
-            // If this is first check or we found newer activity
-            if (repository.getLastActivityAt() == null || 
-                latestActivity.isAfter(repository.getLastActivityAt())) {
-                
-                repository.setLastActivityAt(latestActivity);
-                repository.markActivity();
-                repositoryRepository.save(repository);
-                
-                logger.info("New activity found in repository {}/{}", 
-                        repository.getOwner(), repository.getName());
-                return true;
+        GitHubService.BatchFeeds results = gitHubService.getNewActivities(toFetch, limit);
+        
+        List<GitHubRepository> withNewActivity = new ArrayList<>();
+        results.feeds().forEach((repository, feed) -> {
+            // The events seen so far are covered now that their activity was fetched
+            if (eventIds.get(repository) != null) {
+                repository.getWatermarks().setEventId(eventIds.get(repository));
+            }
+            mirror(repository, seeding.contains(repository), feed, limit);
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    recordCheck(repository, seeding.contains(repository), feed.getActivities())))) {
+                withNewActivity.add(repository);
+            }
+        });
+        
+        // Only failures of the repositories themselves count towards their circuits
+        results.failures().forEach(this::recordFailure);
+        
+        // The rest failed with their batch, which the global circuit breaker has been told about
+        List<GitHubRepository> notFetched = toFetch.stream()
+                .filter(repository -> !results.feeds().containsKey(repository)
+                        && !results.failures().containsKey(repository))
+                .collect(Collectors.toList());
+        if (!notFetched.isEmpty()) {
+            logger.warn("{} repositories not fetched, left for the next run", notFetched.size());
+            releaseLeases(notFetched);
+        }
+        return withNewActivity;
+    }
+    
+    /**
+     * Reads the events feed of each repository and returns those that need
+     * their categories fetched. Quiet repositories are marked as checked
+     * right away, and one whose feed is not due yet waits for GitHub's poll
+     * interval; a repository whose feed cannot be read is fetched as usual.
+     */
+    private List<GitHubRepository> checkEvents(List<GitHubRepository> repositories, Map<GitHubRepository, Long> eventIds) {
+        List<GitHubRepository> changed = new ArrayList<>();
+        for (GitHubRepository repository : repositories) {
+            try {
+                GitHubEventsService.EventsCheck check = eventsService.check(repository);
+                if (check.changed()) {
+                    changed.add(repository);
+                    eventIds.put(repository, check.newestEventId());
+                } else if (check.polled()) {
+                    repository.getWatermarks().setEventId(check.newestEventId());
+                    transactionTemplate.executeWithoutResult(status -> recordCheck(repository, false, List.of()));
+                } else {
+                    recordNotDue(repository, check.nextPollAt());
+                }
+            } catch (GitHubApiException e) {
+                logger.warn("Events feed of {}/{} unavailable, fetching categories: {}",
+                        repository.getOwner(), repository.getName(), e.getMessage());
+                changed.add(repository);
             }
         }
+        logger.info("Events feeds show new activity in {} of {} repositories", changed.size(), repositories.size());
+        return changed;
+    }
+    
+    /**
+     * Gives back the lease of a repository whose events feed may not be read
+     * yet, and moves its next check to when GitHub allows the next read
+     */
+    private void recordNotDue(GitHubRepository repository, Instant nextPollAt) {
+        transactionTemplate.executeWithoutResult(status -> {
+            GitHubRepository current = repositoryRepository.findById(repository.getId()).orElse(repository);
+            current.setLeaseOwner(null);
+            current.setLeaseUntil(null);
+            if (nextPollAt != null) {
+                ZonedDateTime pollAt = nextPollAt.atZone(ZoneId.systemDefault());
+                if (current.getNextCheckAt() == null || current.getNextCheckAt().isBefore(pollAt)) {
+                    current.setNextCheckAt(pollAt);
+                }
+            }
+            repositoryRepository.save(current);
+            repository.setNextCheckAt(current.getNextCheckAt());
+        });
+    }
+    
+    /**
+     * Gives back the leases the repositories were claimed with, so the next
+     * run picks them up again; their next check time is left as it was
+     */
+    private void releaseLeases(List<GitHubRepository> repositories) {
+        Map<String, List<Long>> idsByOwner = repositories.stream()
+                .filter(repository -> repository.getLeaseOwner() != null)
+                .collect(Collectors.groupingBy(GitHubRepository::getLeaseOwner,
+                        Collectors.mapping(GitHubRepository::getId, Collectors.toList())));
+        idsByOwner.forEach((owner, ids) ->
+                transactionTemplate.executeWithoutResult(status -> repositoryRepository.releaseLeases(ids, owner)));
+    }
+    
+    private boolean isEventsDetection() {
+        return "events".equalsIgnoreCase(detectionMode);
+    }
+    
+    /**
+     * Stores fetched activities in the local mirror, in a transaction of their own
+     */
+    private void mirror(GitHubRepository repository, boolean seeding, GitHubActivityFeed feed, int limit) {
+        try {
+            activityService.record(repository, feed.getActivities());
+            // A seeding check fetched the newest items of every category, unless one was answered 304
+            if (seeding && feed.isComplete()) {
+                repository.setMirroredDepth(limit);
+            } else if (seeding) {
+                logger.info("Mirror of {}/{} not seeded, {} not modified", repository.getOwner(),
+                        repository.getName(), String.join(", ", feed.getNotModifiedCategories()));
+            }
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Failed to mirror activity of {}/{}: {}",
+                    repository.getOwner(), repository.getName(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Stores the outcome of a check. The repository was loaded before GitHub
+     * was asked, and a webhook delivery may have updated it in the meantime,
+     * so the check is applied to the current row: watermarks only move
+     * forward, and the other columns keep what was written meanwhile.
+     * The repository passed in is brought up to date for the caller.
+     */
+    private boolean recordCheck(GitHubRepository repository, boolean seeding, List<GitHubActivity> activities) {
+        // The first check only seeds the watermarks of a repository that was already tracked
+        if (seeding && repository.getLastActivityAt() != null && !activities.isEmpty()
+                && !activities.get(0).getCreatedAt().isAfter(repository.getLastActivityAt())) {
+            activities = List.of();
+        }
+        boolean foundActivity = !activities.isEmpty();
+        
+        GitHubRepository current = repositoryRepository.findById(repository.getId()).orElse(repository);
+        current.markAsChecked();
+        // Give the lease back; the next check time keeps the repository from being picked up too early
+        current.setLeaseOwner(null);
+        current.setLeaseUntil(null);
+        current.getWatermarks().advanceTo(repository.getWatermarks());
+        if (repository.getMirroredDepth() != null) {
+            current.setMirroredDepth(repository.getMirroredDepth());
+        }
+        if (foundActivity) {
+            // Cached reads of this repository no longer show its newest activity
+            activityCache.invalidate(repository.getOwner(), repository.getName());
+            current.markActivity();
+        }
+        pollingPolicy.scheduleNextCheck(current, foundActivity);
+        repositoryRepository.save(current);
+        
+        repository.setLastCheckedAt(current.getLastCheckedAt());
+        repository.setLastActivityAt(current.getLastActivityAt());
+        repository.setActivityCount(current.getActivityCount());
+        repository.setNextCheckAt(current.getNextCheckAt());
+        repository.getWatermarks().copyFrom(current.getWatermarks());
         
-        repositoryRepository.save(repository);
-        return false;
+        if (foundActivity) {
+            logger.info("Found {} new activities in repository {}/{}", 
+                    activities.size(), repository.getOwner(), repository.getName());
+        }
+        return foundActivity;
+    }
+    
+    /**
+     * Records a failed check of a repository, which opens its circuit after
+     * too many failures in a row. Failures while the global circuit breaker
+     * is open are GitHub's rather than the repository's and are not counted.
+     * 
+     * @param repository The repository whose check failed
+     * @param error What went wrong
+     */
+    public void recordFailure(GitHubRepository repository, String error) {
+        if (circuitBreaker.isOpen()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                repositoryRepository.findById(repository.getId()).ifPresent(current -> {
+                    pollingPolicy.scheduleAfterFailure(current, error);
+                    // Give the lease back; the repository is due again only once its circuit allows
+                    current.setLeaseOwner(null);
+                    current.setLeaseUntil(null);
+                    if (pollingPolicy.isTripped(current)) {
+                        logger.warn("Circuit of repository {}/{} is open until {} after {} failed checks: {}",
+                                current.getOwner(), current.getName(), current.getCircuitOpenUntil(),
+                                current.getFailureCount(), error);
+                    }
+                }));
+    }
+    
+    /**
+     * Gets the repositories whose circuit is open or half-open, the most
+     * recently failed first
+     */
+    public List<GitHubRepository> getTrippedRepositories() {
+        return repositoryRepository.findByFailureCountGreaterThanEqualOrderByLastFailureAtDesc(
+                pollingPolicy.getFailureThreshold());
+    }
+    
+    /**
+     * Gets the repositories with notification-enabled subscriptions that are
+     * due for a scheduled check, the longest overdue first
+     * 
+     * @param webhookSafetyPollBefore Repositories fed by webhooks are only due if last checked before this time
+     * @return List of repositories to check
+     */
+    public List<GitHubRepository> getRepositoriesDueForCheck(ZonedDateTime webhookSafetyPollBefore) {
+        return repositoryRepository.findDueForCheck(ZonedDateTime.now(), webhookSafetyPollBefore);
     }
     
     /**
@@ -41,7 +41,7 @@ public class RepoSubscriptionService {
      * @param email Email address to validate
      * @throws IllegalArgumentException if the email is invalid
      */
-    private void validateEmail(String email) {
+    void validateEmail(String email) {
         if (email == null) {
             throw new IllegalArgumentException("Email address cannot be null");
         }
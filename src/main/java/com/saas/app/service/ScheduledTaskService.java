@@ -1,18 +1,32 @@
 package com.saas.app.service;
 
+import com.saas.app.model.GitHubOrganization;
 import com.saas.app.model.GitHubRepository;
-import com.saas.app.model.RepoSubscription;
-import com.saas.app.repository.RepoSubscriptionRepository;
+import com.saas.app.model.OrgSubscription;
+import com.saas.app.model.SchedulerRun;
+import com.saas.app.repository.OrgSubscriptionRepository;
+import com.saas.app.util.GitHubCircuitBreaker;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,80 +34,313 @@ public class ScheduledTaskService {
 
     private static final Logger logger = LoggerFactory.getLogger(ScheduledTaskService.class);
 
-    private final RepoSubscriptionRepository subscriptionRepository;
+    static final String REPOSITORY_TASK = "repositories";
+    static final String ORGANIZATION_TASK = "organizations";
+
     private final RepoService repoService;
     private final NotificationService notificationService;
+    private final OrgSubscriptionRepository orgSubscriptionRepository;
+    private final OrgService orgService;
+    private final ShardCoordinator shardCoordinator;
+    private final SchedulerRunService runService;
+    private final GitHubCircuitBreaker circuitBreaker;
+
+    @Value("${app.activity.mirror-depth:30}")
+    private int mirrorDepth;
+
+    @Value("${app.github.webhook-safety-poll-hours:24}")
+    private long webhookSafetyPollHours;
+
+    @Value("${app.schedule.max-checks-per-run:5000}")
+    private int maxChecksPerRun;
+
+    @Value("${app.schedule.max-concurrent-checks:32}")
+    private int maxConcurrentChecks;
+
+    @Value("${app.schedule.repository-timeout-seconds:60}")
+    private long repositoryTimeoutSeconds;
+
+    @Value("${app.schedule.cycle-deadline-seconds:1500}")
+    private long cycleDeadlineSeconds;
+
+    @Value("${app.github.graphql-batch-size:25}")
+    private int graphqlBatchSize;
+
+    private final ExecutorService checkExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private enum CheckOutcome { ACTIVITY, QUIET, TIMED_OUT, DEFERRED }
 
     @Autowired
     public ScheduledTaskService(
-            RepoSubscriptionRepository subscriptionRepository,
             RepoService repoService,
-            NotificationService notificationService) {
-        this.subscriptionRepository = subscriptionRepository;
+            NotificationService notificationService,
+            OrgSubscriptionRepository orgSubscriptionRepository,
+            OrgService orgService,
+            ShardCoordinator shardCoordinator,
+            SchedulerRunService runService,
+            GitHubCircuitBreaker circuitBreaker) {
         this.repoService = repoService;
         this.notificationService = notificationService;
+        this.orgSubscriptionRepository = orgSubscriptionRepository;
+        this.orgService = orgService;
+        this.shardCoordinator = shardCoordinator;
+        this.runService = runService;
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
      * Scheduled task that checks repositories with notification-enabled
      * subscriptions
-     * Scheduled to run every N minutes from application.properties, default 30
-     * minutes
+     * Scheduled to run N minutes after the previous run finished, from
+     * application.properties, default 30 minutes
+     *
+     * Runs never overlap: a run that takes longer than the interval only
+     * delays the next one, rather than having the missed runs fire back to
+     * back. No new check starts after {@code app.schedule.cycle-deadline-seconds};
+     * the repositories left over keep their place at the front of the next run.
+     * The same happens while GitHub's circuit breaker is open.
      */
-    @Scheduled(fixedRateString = "${app.schedule.repository-check-minutes:30}", timeUnit = TimeUnit.MINUTES)
+    @Scheduled(fixedDelayString = "${app.schedule.repository-check-minutes:30}", timeUnit = TimeUnit.MINUTES)
     public void checkRepositoriesForActivity() {
+        SchedulerRun run = runService.begin(REPOSITORY_TASK);
+        try {
+            checkRepositories(run);
+        } catch (RuntimeException e) {
+            run.setStatus(SchedulerRun.FAILED);
+            throw e;
+        } finally {
+            runService.finish(run);
+        }
+    }
+
+    private void checkRepositories(SchedulerRun run) {
+        if (circuitBreaker.isOpen()) {
+            logger.warn("Polling is paused until {}: {}", circuitBreaker.getOpenUntil(), circuitBreaker.getReason());
+            run.setStatus(SchedulerRun.PAUSED);
+            return;
+        }
+
         logger.info("Starting scheduled repository activity check");
+        Instant deadline = run.getStartedAt().toInstant().plusSeconds(cycleDeadlineSeconds);
 
-        List<RepoSubscription> activeSubscriptions = subscriptionRepository.findByNotificationsEnabledTrue();
+        // Webhook deliveries keep some repositories up to date; they are only polled now and then as a safety net
+        ZonedDateTime safetyPollBefore = ZonedDateTime.now().minusHours(webhookSafetyPollHours);
+        List<GitHubRepository> repositoriesToCheck = repoService.getRepositoriesDueForCheck(safetyPollBefore);
 
-        if (activeSubscriptions.isEmpty()) {
-            logger.info("No active subscriptions found, skipping repository check");
+        if (repositoriesToCheck.isEmpty()) {
+            logger.info("No repositories are due, skipping repository check");
             return;
         }
 
-        logger.info("Found {} subscriptions with notifications enabled", activeSubscriptions.size());
+        // Only repositories in this node's share, the longest overdue first
+        List<GitHubRepository> dueRepositories = shardCoordinator.claimRepositories(repositoriesToCheck.stream()
+                .filter(repository -> shardCoordinator.owns(repository.getId()))
+                .limit(maxChecksPerRun)
+                .collect(Collectors.toList()));
+        run.setDue(dueRepositories.size());
 
-        // Get unique repositories to avoid checking the same repository multiple times
-        Set<GitHubRepository> repositoriesToCheck = new HashSet<>();
-        for (RepoSubscription subscription : activeSubscriptions) {
-            repositoriesToCheck.add(subscription.getRepository());
-        }
+        logger.info("Checking {} of {} due repositories for new activity",
+                dueRepositories.size(), repositoriesToCheck.size());
+
+        // GraphQL batches several repositories per call; otherwise every repository is checked on its own
+        List<GitHubRepository> deferred = new ArrayList<>();
+        List<GitHubRepository> repositoriesWithActivity = repoService.checksInBatches()
+                ? checkInBatches(dueRepositories, deadline, run, deferred)
+                : checkInParallel(dueRepositories, deadline, run, deferred);
+        run.setWithActivity(repositoriesWithActivity.size());
 
-        logger.info("Checking {} unique repositories for new activity", repositoriesToCheck.size());
+        if (!deferred.isEmpty()) {
+            // Their next check time is unchanged, so they are among the first due in the next run
+            run.setStatus(circuitBreaker.isOpen() ? SchedulerRun.PAUSED : SchedulerRun.DEADLINE_REACHED);
+            run.setDeferred(deferred.size());
+            shardCoordinator.releaseRepositories(deferred);
+            logger.warn("Run {}, deferred {} repositories to the next run", run.getStatus(), deferred.size());
+        }
 
-        // Check each repository for updates
-        for (GitHubRepository repository : repositoriesToCheck) {
+        for (GitHubRepository repository : repositoriesWithActivity) {
             try {
-                boolean hasNewActivity = repoService.checkForNewActivity(repository, 10);
+                logger.info("New activity detected in repository {}/{}",
+                        repository.getOwner(), repository.getName());
 
-                if (hasNewActivity) {
-                    logger.info("New activity detected in repository {}/{}",
-                            repository.getOwner(), repository.getName());
+                // Subscribers are only loaded for repositories that changed
+                notificationService.notifySubscribers(repository);
+            } catch (Exception e) {
+                logger.error("Error notifying subscribers of repository {}/{}: {}",
+                        repository.getOwner(), repository.getName(), e.getMessage());
+            }
+        }
 
-                    // Get all subscriptions for this repository that have notifications enabled
-                    List<RepoSubscription> subscriptionsToNotify = activeSubscriptions.stream()
-                            .filter(s -> s.getRepository().getId().equals(repository.getId()))
-                            .filter(RepoSubscription::needsNotification)
-                            .collect(Collectors.toList());
+        logger.info("Completed scheduled repository activity check");
+    }
 
-                    logger.info("Found {} subscriptions to notify about repository {}/{}",
-                            subscriptionsToNotify.size(), repository.getOwner(), repository.getName());
+    /**
+     * Checks repositories one GraphQL batch at a time, until the cycle
+     * deadline passes or the circuit breaker opens
+     *
+     * @return The repositories in which new activity was found
+     */
+    private List<GitHubRepository> checkInBatches(List<GitHubRepository> repositories, Instant deadline,
+                                                  SchedulerRun run, List<GitHubRepository> deferred) {
+        List<GitHubRepository> withNewActivity = new ArrayList<>();
+        for (int from = 0; from < repositories.size(); from += graphqlBatchSize) {
+            if (Instant.now().isAfter(deadline) || circuitBreaker.isOpen()) {
+                deferred.addAll(repositories.subList(from, repositories.size()));
+                break;
+            }
+            List<GitHubRepository> batch = repositories.subList(from, Math.min(from + graphqlBatchSize, repositories.size()));
+            try {
+                withNewActivity.addAll(repoService.checkForNewActivity(batch, mirrorDepth));
+                run.setChecked(run.getChecked() + batch.size());
+            } catch (Exception e) {
+                run.setFailed(run.getFailed() + batch.size());
+                logger.error("Error checking a batch of {} repositories for activity: {}", batch.size(), e.getMessage());
+            }
+        }
+        return withNewActivity;
+    }
 
-                    for (RepoSubscription subscription : subscriptionsToNotify) {
-                        String message = String.format("New activity detected in %s/%s", 
-                                repository.getOwner(), repository.getName());
-                        notificationService.createNotification(subscription, message);
+    /**
+     * Checks repositories concurrently on virtual threads, at most
+     * {@code app.schedule.max-concurrent-checks} at a time. Each check runs
+     * in its own transaction and is cancelled once it exceeds
+     * {@code app.schedule.repository-timeout-seconds}, so a slow or failing
+     * repository does not hold up the rest. Permits are handed out in
+     * priority order, and checks still waiting for one when the cycle
+     * deadline passes or the circuit breaker opens are deferred. Failed
+     * checks count towards the repository's own circuit.
+     *
+     * @return The repositories in which new activity was found
+     */
+    private List<GitHubRepository> checkInParallel(List<GitHubRepository> repositories, Instant deadline,
+                                                   SchedulerRun run, List<GitHubRepository> deferred) {
+        Semaphore permits = new Semaphore(maxConcurrentChecks, true);
+        Map<GitHubRepository, Future<CheckOutcome>> checks = new LinkedHashMap<>();
+        for (GitHubRepository repository : repositories) {
+            checks.put(repository, checkExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    if (Instant.now().isAfter(deadline) || circuitBreaker.isOpen()) {
+                        return CheckOutcome.DEFERRED;
                     }
-                } else {
-                    logger.debug("No new activity in repository {}/{}",
-                            repository.getOwner(), repository.getName());
+                    return checkWithTimeout(repository);
+                } finally {
+                    permits.release();
                 }
-            } catch (Exception e) {
+            }));
+        }
+
+        List<GitHubRepository> withNewActivity = new ArrayList<>();
+        for (Map.Entry<GitHubRepository, Future<CheckOutcome>> check : checks.entrySet()) {
+            GitHubRepository repository = check.getKey();
+            try {
+                switch (check.getValue().get()) {
+                    case ACTIVITY -> {
+                        run.setChecked(run.getChecked() + 1);
+                        withNewActivity.add(repository);
+                    }
+                    case QUIET -> run.setChecked(run.getChecked() + 1);
+                    case TIMED_OUT -> run.setTimedOut(run.getTimedOut() + 1);
+                    case DEFERRED -> deferred.add(repository);
+                }
+            } catch (ExecutionException e) {
+                run.setFailed(run.getFailed() + 1);
                 logger.error("Error checking repository {}/{} for activity: {}",
-                        repository.getOwner(), repository.getName(), e.getMessage());
+                        repository.getOwner(), repository.getName(), e.getCause().getMessage());
+                repoService.recordFailure(repository, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                checks.values().forEach(future -> future.cancel(true));
+                break;
             }
         }
+        return withNewActivity;
+    }
 
-        logger.info("Completed scheduled repository activity check");
+    private CheckOutcome checkWithTimeout(GitHubRepository repository) throws Exception {
+        Future<Boolean> check = checkExecutor.submit(() -> repoService.checkForNewActivity(repository, mirrorDepth));
+        try {
+            return check.get(repositoryTimeoutSeconds, TimeUnit.SECONDS) ? CheckOutcome.ACTIVITY : CheckOutcome.QUIET;
+        } catch (TimeoutException e) {
+            check.cancel(true);
+            logger.warn("Checking repository {}/{} took longer than {}s, skipped until the next run",
+                    repository.getOwner(), repository.getName(), repositoryTimeoutSeconds);
+            return CheckOutcome.TIMED_OUT;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Scheduled task that recounts the unread notification counters, which
+     * also creates them for users who had notifications before counters existed
+     */
+    @Scheduled(fixedRateString = "${app.notifications.counter-reconcile-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void reconcileUnreadCounters() {
+        int counters = notificationService.reconcileUnreadCounters();
+        logger.info("Reconciled {} unread notification counters", counters);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkExecutor.shutdownNow();
+    }
+
+    /**
+     * Scheduled task that checks organizations with notification-enabled
+     * "owner/*" subscriptions, reading one events feed per organization.
+     * Like the repository check it runs the interval after the previous run finished.
+     */
+    @Scheduled(fixedDelayString = "${app.schedule.repository-check-minutes:30}", timeUnit = TimeUnit.MINUTES)
+    public void checkOrganizationsForActivity() {
+        SchedulerRun run = runService.begin(ORGANIZATION_TASK);
+        try {
+            checkOrganizations(run);
+        } catch (RuntimeException e) {
+            run.setStatus(SchedulerRun.FAILED);
+            throw e;
+        } finally {
+            runService.finish(run);
+        }
+    }
+
+    private void checkOrganizations(SchedulerRun run) {
+        if (circuitBreaker.isOpen()) {
+            run.setStatus(SchedulerRun.PAUSED);
+            return;
+        }
+
+        List<OrgSubscription> activeSubscriptions = orgSubscriptionRepository.findByNotificationsEnabledTrue();
+
+        if (activeSubscriptions.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<OrgSubscription>> subscriptionsByOrganization = activeSubscriptions.stream()
+                .collect(Collectors.groupingBy(s -> s.getOrganization().getId()));
+
+        List<GitHubOrganization> organizations = shardCoordinator.claimOrganizations(
+                subscriptionsByOrganization.values().stream()
+                        .map(subscriptions -> subscriptions.get(0).getOrganization())
+                        .collect(Collectors.toList()));
+        run.setDue(organizations.size());
+
+        logger.info("Checking {} of {} organizations for new activity",
+                organizations.size(), subscriptionsByOrganization.size());
+
+        for (GitHubOrganization organization : organizations) {
+            // The rest wait for their leases to expire
+            if (circuitBreaker.isOpen()) {
+                run.setStatus(SchedulerRun.PAUSED);
+                break;
+            }
+            try {
+                orgService.checkForNewActivity(organization);
+                run.setChecked(run.getChecked() + 1);
+            } catch (Exception e) {
+                run.setFailed(run.getFailed() + 1);
+                logger.error("Error checking organization {} for activity: {}",
+                        organization.getLogin(), e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
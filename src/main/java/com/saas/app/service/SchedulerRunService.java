@@ -0,0 +1,94 @@
+package com.saas.app.service;
+
+import com.saas.app.model.SchedulerRun;
+import com.saas.app.repository.SchedulerRunRepository;
+import com.saas.app.util.ConditionalRequestTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * Keeps the history of scheduled check runs.
+ *
+ * Upstream requests and 304 responses are taken from the process-wide
+ * counters of the HTTP client, so they include any other GitHub calls made
+ * while the run was in progress.
+ */
+@Service
+public class SchedulerRunService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerRunService.class);
+
+    private final SchedulerRunRepository runRepository;
+    private final ConditionalRequestTracker requestTracker;
+    private final ShardCoordinator shardCoordinator;
+
+    @Value("${app.schedule.run-history-days:30}")
+    private long runHistoryDays;
+
+    @Autowired
+    public SchedulerRunService(SchedulerRunRepository runRepository,
+                               ConditionalRequestTracker requestTracker,
+                               ShardCoordinator shardCoordinator) {
+        this.runRepository = runRepository;
+        this.requestTracker = requestTracker;
+        this.shardCoordinator = shardCoordinator;
+    }
+
+    /**
+     * Starts tracking a run; nothing is stored until it finishes
+     *
+     * @param task The scheduled task, e.g. "repositories"
+     * @return The run to fill in while it is in progress
+     */
+    public SchedulerRun begin(String task) {
+        SchedulerRun run = new SchedulerRun(task, shardCoordinator.getNodeId());
+        run.setRequestsAtStart(requestTracker.getRequestCount());
+        run.setNotModifiedAtStart(requestTracker.getNotModifiedCount());
+        return run;
+    }
+
+    /**
+     * Stores a finished run and drops runs older than {@code app.schedule.run-history-days}
+     */
+    @Transactional
+    public SchedulerRun finish(SchedulerRun run) {
+        run.setFinishedAt(ZonedDateTime.now());
+        run.setDurationMillis(Duration.between(run.getStartedAt(), run.getFinishedAt()).toMillis());
+        run.setUpstreamRequests(requestTracker.getRequestCount() - run.getRequestsAtStart());
+        run.setNotModifiedResponses(requestTracker.getNotModifiedCount() - run.getNotModifiedAtStart());
+        if (run.getStatus() == null) {
+            run.setStatus(SchedulerRun.COMPLETED);
+        }
+
+        logger.info("Scheduled {} run {} in {} ms: {} due, {} checked, {} with activity, {} failed, {} timed out, "
+                        + "{} deferred, {} of {} requests not modified",
+                run.getTask(), run.getStatus(), run.getDurationMillis(), run.getDue(), run.getChecked(),
+                run.getWithActivity(), run.getFailed(), run.getTimedOut(), run.getDeferred(),
+                run.getNotModifiedResponses(), run.getUpstreamRequests());
+
+        runRepository.deleteByStartedAtBefore(ZonedDateTime.now().minusDays(runHistoryDays));
+        return runRepository.save(run);
+    }
+
+    /**
+     * Gets past runs of all nodes
+     *
+     * @param task Only runs of this task, or all runs if null
+     * @param pageable Pagination information
+     * @return Page of runs
+     */
+    public Page<SchedulerRun> getRuns(String task, Pageable pageable) {
+        return task == null
+                ? runRepository.findAll(pageable)
+                : runRepository.findByTask(task, pageable);
+    }
+}
@@ -0,0 +1,229 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubOrganization;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.SchedulerNode;
+import com.saas.app.repository.OrganizationRepository;
+import com.saas.app.repository.RepositoryRepository;
+import com.saas.app.repository.SchedulerNodeRepository;
+import com.saas.app.util.Hashing;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Splits scheduled checks across all running instances that share the database.
+ *
+ * Every node keeps a heartbeat row in {@code scheduler_nodes}; nodes whose
+ * heartbeat is older than the node timeout are dropped. Repositories and
+ * organizations are assigned to live nodes by rendezvous hashing, so a node
+ * joining or leaving only moves its own share. Before checking, a node takes
+ * a lease on each item in the database, which keeps two nodes that briefly
+ * disagree about the membership from checking the same item.
+ *
+ * Heartbeats are sent from a thread of their own rather than the shared
+ * task scheduler, so long check runs cannot delay them past the node timeout.
+ */
+@Service
+public class ShardCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    // Keeps IN lists well below database limits
+    private static final int CLAIM_CHUNK_SIZE = 500;
+
+    private final SchedulerNodeRepository nodeRepository;
+    private final RepositoryRepository repositoryRepository;
+    private final OrganizationRepository organizationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${app.cluster.node-timeout-seconds:30}")
+    private long nodeTimeoutSeconds;
+
+    @Value("${app.cluster.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.cluster.heartbeat-seconds:10}")
+    private long heartbeatSeconds;
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("shard-heartbeat").daemon().factory());
+
+    private volatile List<String> liveNodes = List.of();
+
+    @Autowired
+    public ShardCoordinator(SchedulerNodeRepository nodeRepository,
+                            RepositoryRepository repositoryRepository,
+                            OrganizationRepository organizationRepository,
+                            TransactionTemplate transactionTemplate) {
+        this.nodeRepository = nodeRepository;
+        this.repositoryRepository = repositoryRepository;
+        this.organizationRepository = organizationRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    @PostConstruct
+    public void join() {
+        heartbeat();
+        heartbeatExecutor.scheduleAtFixedRate(this::heartbeatQuietly,
+                heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        logger.info("Scheduler node {} joined, {} live nodes", nodeId, liveNodes.size());
+    }
+
+    /**
+     * Refreshes this node's heartbeat, drops nodes that stopped sending
+     * theirs and reloads the membership used for sharding
+     */
+    public void heartbeat() {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime cutoff = now.minusSeconds(nodeTimeoutSeconds);
+
+        List<String> nodes = transactionTemplate.execute(status -> {
+            SchedulerNode self = nodeRepository.findById(nodeId).orElseGet(() -> new SchedulerNode(nodeId));
+            self.setHeartbeatAt(now);
+            nodeRepository.save(self);
+            nodeRepository.deleteByHeartbeatAtBefore(cutoff);
+            return nodeRepository.findByHeartbeatAtAfterOrderByNodeId(cutoff).stream()
+                    .map(SchedulerNode::getNodeId)
+                    .collect(Collectors.toList());
+        });
+
+        if (!nodes.equals(liveNodes)) {
+            logger.info("Scheduler membership changed: {} live nodes", nodes.size());
+        }
+        liveNodes = nodes;
+    }
+
+    private void heartbeatQuietly() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            // A failed heartbeat must not cancel the ones after it
+            logger.warn("Heartbeat of scheduler node {} failed: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        heartbeatExecutor.shutdownNow();
+        try {
+            transactionTemplate.executeWithoutResult(status -> nodeRepository.deleteById(nodeId));
+            logger.info("Scheduler node {} left", nodeId);
+        } catch (Exception e) {
+            // The other nodes drop this one once its heartbeat times out
+            logger.warn("Failed to deregister scheduler node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks if the item with the given id falls into this node's share
+     */
+    public boolean owns(long id) {
+        List<String> nodes = liveNodes;
+        if (nodes.size() <= 1) {
+            return true;
+        }
+
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = Hashing.mix(node.hashCode() * 0x9E3779B97F4A7C15L ^ id);
+            if (owner == null || weight > best) {
+                owner = node;
+                best = weight;
+            }
+        }
+        return nodeId.equals(owner);
+    }
+
+    /**
+     * Keeps the repositories in this node's share that it could lease
+     *
+     * @param repositories Repositories that are due, in priority order
+     * @return The leased repositories, in the same order
+     */
+    public List<GitHubRepository> claimRepositories(List<GitHubRepository> repositories) {
+        return claim(repositories, GitHubRepository::getId, (ids, until, now) -> {
+            repositoryRepository.claimLeases(ids, nodeId, until, now);
+            return repositoryRepository.findLeased(ids, nodeId, now);
+        });
+    }
+
+    /**
+     * Keeps the organizations in this node's share that it could lease
+     */
+    public List<GitHubOrganization> claimOrganizations(List<GitHubOrganization> organizations) {
+        return claim(organizations, GitHubOrganization::getId, (ids, until, now) -> {
+            organizationRepository.claimLeases(ids, nodeId, until, now);
+            return organizationRepository.findLeased(ids, nodeId, now);
+        });
+    }
+
+    /**
+     * Releases this node's leases on repositories it claimed but did not check
+     */
+    public void releaseRepositories(List<GitHubRepository> repositories) {
+        for (int from = 0; from < repositories.size(); from += CLAIM_CHUNK_SIZE) {
+            List<Long> ids = repositories.subList(from, Math.min(from + CLAIM_CHUNK_SIZE, repositories.size())).stream()
+                    .map(GitHubRepository::getId)
+                    .collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> repositoryRepository.releaseLeases(ids, nodeId));
+        }
+    }
+
+    private <T> List<T> claim(List<T> items, Function<T, Long> idOf, LeaseQuery leaseQuery) {
+        List<T> owned = items.stream()
+                .filter(item -> owns(idOf.apply(item)))
+                .collect(Collectors.toList());
+
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime until = now.plusSeconds(leaseSeconds);
+        Set<Long> leased = new HashSet<>();
+        for (int from = 0; from < owned.size(); from += CLAIM_CHUNK_SIZE) {
+            List<Long> ids = owned.subList(from, Math.min(from + CLAIM_CHUNK_SIZE, owned.size())).stream()
+                    .map(idOf)
+                    .collect(Collectors.toList());
+            leased.addAll(transactionTemplate.execute(status -> leaseQuery.claim(ids, until, now)));
+        }
+
+        List<T> claimed = new ArrayList<>();
+        for (T item : owned) {
+            if (leased.contains(idOf.apply(item))) {
+                claimed.add(item);
+            }
+        }
+        logger.debug("Node {} owns {} of {} items and leased {}", nodeId, owned.size(), items.size(), claimed.size());
+        return claimed;
+    }
+
+    @FunctionalInterface
+    private interface LeaseQuery {
+        List<Long> claim(List<Long> ids, ZonedDateTime until, ZonedDateTime now);
+    }
+}
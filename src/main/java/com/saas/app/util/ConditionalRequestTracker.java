@@ -0,0 +1,99 @@
+package com.saas.app.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Network interceptor that records whether the requests sent upstream were
+ * answered with 304 Not Modified.
+ *
+ * Requests are revalidated against the HTTP cache with If-None-Match /
+ * If-Modified-Since, so a 304 means the cached page is still current and the
+ * call did not count against the rate limit. Callers open a scope around a
+ * fetch and ask {@link #unchanged()} before doing any mapping work.
+ *
+ * Running totals over all threads are kept as well, so scheduler runs can
+ * report how many of their requests were answered from the cache.
+ */
+public class ConditionalRequestTracker implements Interceptor {
+
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        requestCount.incrementAndGet();
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            notModifiedCount.incrementAndGet();
+        }
+        Scope scope = currentScope.get();
+        if (scope != null) {
+            scope.record(response.code());
+        }
+        return response;
+    }
+
+    /**
+     * Runs the given operation inside a fresh tracking scope on the current thread
+     *
+     * @param operation The operation to run
+     * @param <T> The return type of the operation
+     * @return The result of the operation
+     */
+    public <T> T withinScope(Supplier<T> operation) {
+        Scope previous = currentScope.get();
+        currentScope.set(new Scope());
+        try {
+            return operation.get();
+        } finally {
+            if (previous != null) {
+                currentScope.set(previous);
+            } else {
+                currentScope.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks if every request sent in the current scope was answered with 304
+     *
+     * @return true if a scope is open, at least one request was sent and none returned new data
+     */
+    public boolean unchanged() {
+        Scope scope = currentScope.get();
+        return scope != null && scope.requests > 0 && scope.notModified == scope.requests;
+    }
+
+    /**
+     * Gets the number of requests sent upstream since startup
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets the number of requests answered with 304 since startup
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    private static class Scope {
+        private int requests;
+        private int notModified;
+
+        private void record(int statusCode) {
+            requests++;
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                notModified++;
+            }
+        }
+    }
+}
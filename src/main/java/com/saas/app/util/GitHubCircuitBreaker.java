@@ -0,0 +1,150 @@
+package com.saas.app.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Global circuit breaker for polling GitHub.
+ *
+ * Registered as a network interceptor, it watches every response. The
+ * breaker opens when GitHub answers with a secondary ("abuse") rate limit,
+ * or with server errors several times in a row. While it is open, scheduled
+ * checks are paused. The pause lasts as long as GitHub's Retry-After asks,
+ * or else doubles with each trip in a row up to the maximum. Primary rate
+ * limits are left to {@link GitHubTokenPool}, which parks the exhausted token.
+ */
+public class GitHubCircuitBreaker implements Interceptor {
+
+    private final int serverErrorThreshold;
+    private final Duration pause;
+    private final Duration maxPause;
+
+    private int consecutiveServerErrors;
+    private int consecutiveTrips;
+    private Instant openUntil;
+    private String reason;
+
+    public GitHubCircuitBreaker(int serverErrorThreshold, Duration pause, Duration maxPause) {
+        this.serverErrorThreshold = Math.max(1, serverErrorThreshold);
+        this.pause = pause;
+        this.maxPause = maxPause;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        int code = response.code();
+
+        if (code >= 500) {
+            onServerError(code);
+        } else if (isSecondaryRateLimit(response)) {
+            trip(retryAfter(response), "Secondary rate limit (" + code + ")");
+        } else if (code < 400) {
+            onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * Checks if polling is paused right now
+     */
+    public synchronized boolean isOpen() {
+        return openUntil != null && Instant.now().isBefore(openUntil);
+    }
+
+    /**
+     * Gets the end of the current or last pause, or null if the breaker never opened
+     */
+    public synchronized Instant getOpenUntil() {
+        return openUntil;
+    }
+
+    /**
+     * Gets why the breaker opened last
+     */
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    /**
+     * Counts a failure of GitHub as a whole that does not come back as a
+     * server error, e.g. a failed connection or a rejected token, the same
+     * way as a server error
+     */
+    public synchronized void recordFailure(String why) {
+        consecutiveServerErrors++;
+        if (consecutiveServerErrors >= serverErrorThreshold && !isOpen()) {
+            trip(null, consecutiveServerErrors + " failures in a row (last: " + why + ")");
+        }
+    }
+
+    /**
+     * Opens the breaker right away for a failure that would only repeat,
+     * e.g. a successful response that carries no data
+     */
+    public synchronized void open(String why) {
+        trip(null, why);
+    }
+
+    private synchronized void onServerError(int code) {
+        consecutiveServerErrors++;
+        if (consecutiveServerErrors >= serverErrorThreshold && !isOpen()) {
+            trip(null, consecutiveServerErrors + " server errors in a row (last " + code + ")");
+        }
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveServerErrors = 0;
+        if (!isOpen()) {
+            consecutiveTrips = 0;
+        }
+    }
+
+    private synchronized void trip(Duration retryAfter, String why) {
+        consecutiveTrips++;
+        Duration length = retryAfter;
+        if (length == null) {
+            length = pause.multipliedBy(1L << Math.min(consecutiveTrips - 1, 20));
+            if (length.compareTo(maxPause) > 0) {
+                length = maxPause;
+            }
+        }
+        Instant until = Instant.now().plus(length);
+        if (openUntil == null || until.isAfter(openUntil)) {
+            openUntil = until;
+        }
+        reason = why;
+        consecutiveServerErrors = 0;
+    }
+
+    private boolean isSecondaryRateLimit(Response response) throws IOException {
+        if (response.code() == 429) {
+            return true;
+        }
+        if (response.code() != 403 || "0".equals(response.header("X-RateLimit-Remaining"))) {
+            return false;
+        }
+        if (response.header("Retry-After") != null) {
+            return true;
+        }
+        String body = response.peekBody(2048).string().toLowerCase(Locale.ROOT);
+        return body.contains("secondary rate limit") || body.contains("abuse");
+    }
+
+    private static Duration retryAfter(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
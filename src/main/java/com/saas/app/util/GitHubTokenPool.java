@@ -0,0 +1,148 @@
+package com.saas.app.util;
+
+import com.saas.app.exception.GitHubApiException;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of GitHub tokens that hands out the token with the most remaining
+ * quota for a rate limit resource ("core", "graphql", ...).
+ *
+ * The pool is also registered as a network interceptor and keeps each
+ * token's quota in step with the X-RateLimit-* headers GitHub returns.
+ * A token whose quota is used up is parked until its reset time.
+ */
+public class GitHubTokenPool implements Interceptor {
+
+    private final Map<String, Map<String, Quota>> quotas = new LinkedHashMap<>();
+
+    public GitHubTokenPool(List<String> tokens) {
+        for (String token : tokens) {
+            if (token != null && !token.isBlank()) {
+                quotas.put(token.trim(), new HashMap<>());
+            }
+        }
+    }
+
+    /**
+     * Checks if no tokens are configured, in which case GitHub is used anonymously
+     */
+    public boolean isEmpty() {
+        return quotas.isEmpty();
+    }
+
+    public int size() {
+        return quotas.size();
+    }
+
+    /**
+     * Picks the token with the most remaining quota for the given resource
+     *
+     * @param resource The rate limit resource the call will count against
+     * @return The token to use, or null if no tokens are configured
+     * @throws GitHubApiException if every token is parked until its reset time
+     */
+    public synchronized String acquire(String resource) {
+        if (quotas.isEmpty()) {
+            return null;
+        }
+
+        Instant now = Instant.now();
+        String best = null;
+        long bestRemaining = Long.MIN_VALUE;
+        Instant earliestReset = null;
+
+        for (Map.Entry<String, Map<String, Quota>> entry : quotas.entrySet()) {
+            Quota quota = entry.getValue().computeIfAbsent(resource, r -> new Quota());
+            if (quota.isParked(now)) {
+                if (earliestReset == null || quota.resetAt.isBefore(earliestReset)) {
+                    earliestReset = quota.resetAt;
+                }
+                continue;
+            }
+            if (quota.remaining > bestRemaining) {
+                best = entry.getKey();
+                bestRemaining = quota.remaining;
+            }
+        }
+
+        if (best == null) {
+            throw new GitHubApiException("All GitHub tokens are rate limited until " + earliestReset);
+        }
+
+        // Count the call right away so concurrent callers spread over the pool
+        quotas.get(best).get(resource).remaining--;
+        return best;
+    }
+
+    /**
+     * Checks if no token has more than the given quota left for the resource.
+     * Tokens whose quota is not known yet count as having enough.
+     */
+    public synchronized boolean isRunningLow(String resource, long threshold) {
+        if (quotas.isEmpty()) {
+            return false;
+        }
+        Instant now = Instant.now();
+        for (Map<String, Quota> tokenQuotas : quotas.values()) {
+            Quota quota = tokenQuotas.computeIfAbsent(resource, r -> new Quota());
+            if (!quota.isParked(now) && quota.remaining > threshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        String authorization = chain.request().header("Authorization");
+        String remaining = response.header("X-RateLimit-Remaining");
+        String reset = response.header("X-RateLimit-Reset");
+        if (authorization != null && remaining != null && reset != null) {
+            String token = authorization.substring(authorization.indexOf(' ') + 1).trim();
+            String resource = response.header("X-RateLimit-Resource", "core");
+            try {
+                update(token, resource, Long.parseLong(remaining), Instant.ofEpochSecond(Long.parseLong(reset)));
+            } catch (NumberFormatException e) {
+                // Leave the quota as it was if GitHub sends something unexpected
+            }
+        }
+        return response;
+    }
+
+    private synchronized void update(String token, String resource, long remaining, Instant resetAt) {
+        Map<String, Quota> tokenQuotas = quotas.get(token);
+        if (tokenQuotas != null) {
+            Quota quota = tokenQuotas.computeIfAbsent(resource, r -> new Quota());
+            quota.remaining = remaining;
+            quota.resetAt = resetAt;
+        }
+    }
+
+    private static class Quota {
+        // Unknown until the first response for this token and resource
+        private long remaining = Long.MAX_VALUE;
+        private Instant resetAt;
+
+        private boolean isParked(Instant now) {
+            if (remaining > 0 || resetAt == null) {
+                return false;
+            }
+            if (now.isBefore(resetAt)) {
+                return true;
+            }
+            remaining = Long.MAX_VALUE;
+            resetAt = null;
+            return false;
+        }
+    }
+}
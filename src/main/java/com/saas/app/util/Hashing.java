@@ -0,0 +1,26 @@
+package com.saas.app.util;
+
+/**
+ * Hash helpers for spreading ids evenly, e.g. over nodes or over time
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads the input over all bits
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Maps a value to a fixed, evenly distributed fraction in [0, 1)
+     */
+    public static double unitInterval(long value) {
+        return (mix(value) >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,98 @@
+package com.saas.app.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that paces the requests sent to GitHub.
+ *
+ * Registered as an application interceptor, so callers wait before a pooled
+ * connection is taken. The scheduler's polling instead pays for all requests
+ * of a check up front with {@link #acquire(int)}, before the time budget of
+ * its categories starts. Up to {@code burst} requests go out right away;
+ * after that callers wait their turn, in order, so a run of concurrent checks
+ * becomes a steady stream of {@code requestsPerSecond} instead of a burst
+ * that trips GitHub's secondary rate limits. A caller interrupted while
+ * waiting gives its tokens back.
+ */
+public class RequestPacer implements Interceptor {
+
+    private final double requestsPerSecond;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param requestsPerSecond Sustained request rate; 0 or less turns pacing off
+     * @param burst Requests that may be sent at once after an idle period
+     */
+    public RequestPacer(double requestsPerSecond, int burst) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return requestsPerSecond > 0;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        try {
+            acquire(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a GitHub request");
+        }
+        return chain.proceed(chain.request());
+    }
+
+    /**
+     * Waits until the given number of requests may be sent
+     *
+     * @param permits Number of requests
+     * @throws InterruptedException if interrupted while waiting; the tokens are given back
+     */
+    public void acquire(int permits) throws InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                refund(permits);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Takes tokens, going into debt when not enough are left
+     *
+     * @return How long the caller has to wait before sending, in nanoseconds
+     */
+    synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+
+        tokens -= permits;
+        // Tokens below zero are owed by callers already waiting, which keeps them in order
+        return tokens >= 0 ? 0 : (long) (-tokens / requestsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Gives back tokens of requests that were abandoned before being sent
+     */
+    synchronized void refund(int permits) {
+        tokens = Math.min(burst, tokens + permits);
+    }
+}
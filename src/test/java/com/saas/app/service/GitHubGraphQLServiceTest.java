@@ -0,0 +1,177 @@
+package com.saas.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.util.GitHubCircuitBreaker;
+import com.saas.app.util.GitHubTokenPool;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the GraphQL fetch mode against a local stand-in for the GitHub GraphQL endpoint.
+ */
+class GitHubGraphQLServiceTest {
+
+    private static final String RESPONSE = """
+            {
+              "data": {
+                "r0": {
+                  "pullRequests": { "nodes": [
+                    { "number": 12, "title": "Add feature", "url": "https://github.com/octocat/Hello-World/pull/12",
+                      "createdAt": "2024-05-02T10:00:00Z", "author": { "login": "alice" } }
+                  ] },
+                  "issues": { "nodes": [
+                    { "number": 11, "title": "Broken link", "url": "https://github.com/octocat/Hello-World/issues/11",
+                      "createdAt": "2024-05-01T10:00:00Z", "author": { "login": "carol" } }
+                  ] },
+                  "releases": { "nodes": [
+                    { "databaseId": 500, "name": "v1.0", "url": "https://github.com/octocat/Hello-World/releases/tag/v1.0",
+                      "publishedAt": "2024-05-03T10:00:00Z" }
+                  ] },
+                  "defaultBranchRef": { "target": { "history": { "nodes": [
+                    { "oid": "abc123", "message": "Fix bug", "committedDate": "2024-05-04T10:00:00Z",
+                      "url": "https://github.com/octocat/Hello-World/commit/abc123",
+                      "author": { "name": "Bob", "user": { "login": "bob" } } }
+                  ] } } }
+                },
+                "r1": null
+              },
+              "errors": [ { "type": "NOT_FOUND", "path": ["r1"], "message": "Could not resolve to a Repository" } ]
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private GitHubCircuitBreaker circuitBreaker;
+    private GitHubGraphQLService graphQLService;
+    private volatile int status = 200;
+    private volatile String response = RESPONSE;
+
+    @BeforeEach
+    void startFakeEndpoint() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/graphql", exchange -> {
+            requests.add(objectMapper.readTree(exchange.getRequestBody()));
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        String url = "http://localhost:" + server.getAddress().getPort() + "/graphql";
+        circuitBreaker = new GitHubCircuitBreaker(2, Duration.ofMinutes(1), Duration.ofMinutes(30));
+        graphQLService = new GitHubGraphQLService(new OkHttpClient(), objectMapper, url, 25,
+                new GitHubTokenPool(List.of("test-token")), circuitBreaker);
+    }
+
+    @AfterEach
+    void stopFakeEndpoint() {
+        server.stop(0);
+    }
+
+    @Test
+    void fetchesWholeBatchInOneQuery() {
+        GitHubRepository hello = new GitHubRepository("octocat", "Hello-World");
+        GitHubRepository missing = new GitHubRepository("octocat", "missing");
+
+        GitHubGraphQLService.Results results = graphQLService.getNewActivities(List.of(hello, missing), 10);
+
+        assertEquals(1, requests.size());
+        JsonNode variables = requests.get(0).path("variables");
+        assertEquals("Hello-World", variables.path("n0").asText());
+        assertEquals("missing", variables.path("n1").asText());
+
+        assertFalse(results.activities().containsKey(missing));
+        assertEquals(Set.of(missing), results.notFound());
+        assertFalse(circuitBreaker.isOpen());
+        List<GitHubActivity> activities = results.activities().get(hello);
+        assertEquals(List.of("commit", "release", "pull_request", "issue"),
+                activities.stream().map(GitHubActivity::getType).toList());
+        assertEquals("bob", activities.get(0).getActor());
+
+        assertEquals("abc123", hello.getWatermarks().getCommitSha());
+        assertEquals(12, hello.getWatermarks().getPullRequestNumber());
+        assertEquals(11, hello.getWatermarks().getIssueNumber());
+        assertEquals(500L, hello.getWatermarks().getReleaseId());
+    }
+
+    @Test
+    void skipsItemsCoveredByWatermarks() {
+        GitHubRepository hello = new GitHubRepository("octocat", "Hello-World");
+        graphQLService.getNewActivities(List.of(hello), 10);
+
+        GitHubGraphQLService.Results results = graphQLService.getNewActivities(List.of(hello), 10);
+
+        assertTrue(results.activities().get(hello).isEmpty());
+        assertTrue(requests.get(1).path("variables").hasNonNull("s0"));
+    }
+
+    @Test
+    void responseWithoutDataFailsTheBatchNotItsRepositories() {
+        response = """
+                { "data": null, "errors": [ { "type": "RATE_LIMITED", "message": "API rate limit exceeded" } ] }
+                """;
+        GitHubRepository hello = new GitHubRepository("octocat", "Hello-World");
+
+        GitHubGraphQLService.Results results = graphQLService.getNewActivities(List.of(hello), 10);
+
+        assertTrue(results.activities().isEmpty());
+        assertTrue(results.notFound().isEmpty());
+        assertTrue(circuitBreaker.isOpen());
+        assertNull(hello.getWatermarks().getCommitSha());
+    }
+
+    @Test
+    void responseWithOnlyErrorsFailsTheBatchNotItsRepositories() {
+        response = """
+                { "data": { "r0": null, "r1": null },
+                  "errors": [ { "type": "FORBIDDEN", "path": ["r0"], "message": "Resource not accessible" },
+                              { "type": "FORBIDDEN", "path": ["r1"], "message": "Resource not accessible" } ] }
+                """;
+
+        GitHubGraphQLService.Results results = graphQLService.getNewActivities(List.of(
+                new GitHubRepository("octocat", "Hello-World"), new GitHubRepository("octocat", "Spoon-Knife")), 10);
+
+        assertTrue(results.activities().isEmpty());
+        assertTrue(results.notFound().isEmpty());
+        assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    void failedRequestsCountTowardsTheBreaker() {
+        status = 401;
+        response = "{ \"message\": \"Bad credentials\" }";
+        GitHubRepository hello = new GitHubRepository("octocat", "Hello-World");
+
+        GitHubGraphQLService.Results results = graphQLService.getNewActivities(List.of(hello), 10);
+        assertTrue(results.activities().isEmpty());
+        assertTrue(results.notFound().isEmpty());
+        assertFalse(circuitBreaker.isOpen());
+
+        // The breaker opens after two failures in a row, and then no batch is sent at all
+        graphQLService.getNewActivities(List.of(hello), 10);
+        assertTrue(circuitBreaker.isOpen());
+        graphQLService.getNewActivities(List.of(hello), 10);
+        assertEquals(2, requests.size());
+    }
+}
@@ -0,0 +1,185 @@
+package com.saas.app.service;
+
+import com.saas.app.model.ActivityWatermarks;
+import com.saas.app.model.GitHubActivity;
+import com.saas.app.model.GitHubActivityFeed;
+import com.saas.app.util.ConditionalRequestTracker;
+import com.saas.app.util.GitHubTokenPool;
+import com.saas.app.util.RequestPacer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Polls a local stand-in for the GitHub REST API that answers conditional
+ * requests, to check that categories answered with 304 Not Modified are
+ * neither mapped nor allowed to move the watermarks.
+ */
+class GitHubServiceTest {
+
+    private static final String REPOSITORY_PATH = "/repos/octocat/Hello-World";
+
+    private static final String REPOSITORY = """
+            {"id": 1296269, "name": "Hello-World", "full_name": "octocat/Hello-World",
+             "owner": {"login": "octocat"}, "url": "https://api.github.com/repos/octocat/Hello-World",
+             "html_url": "https://github.com/octocat/Hello-World"}
+            """;
+
+    private static final String COMMIT = """
+            {"sha": "%1$s", "html_url": "https://github.com/octocat/Hello-World/commit/%1$s",
+             "url": "https://api.github.com/repos/octocat/Hello-World/commits/%1$s",
+             "commit": {"message": "Commit %1$s",
+                        "author": {"name": "Bob", "email": "bob@example.com", "date": "%2$s"},
+                        "committer": {"name": "Bob", "email": "bob@example.com", "date": "%2$s"}},
+             "parents": []}
+            """;
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer server;
+    private GitHubService gitHubService;
+
+    // Bumped to give the commits listing a new commit and a new ETag
+    private volatile int commitsVersion = 1;
+    private final Map<String, Integer> lastStatus = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startFakeApi() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::serve);
+        server.start();
+        int port = server.getAddress().getPort();
+
+        ConditionalRequestTracker requestTracker = new ConditionalRequestTracker();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir.toFile(), 1024 * 1024))
+                // Sends the requests meant for api.github.com to the stand-in
+                .addInterceptor(chain -> {
+                    HttpUrl url = chain.request().url().newBuilder().scheme("http").host("localhost").port(port).build();
+                    return chain.proceed(chain.request().newBuilder().url(url).build());
+                })
+                .addNetworkInterceptor(requestTracker)
+                .build();
+
+        gitHubService = new GitHubService(client, client, requestTracker, new GitHubTokenPool(List.of()),
+                mock(GitHubGraphQLService.class), new RequestPacer(0, 1));
+        ReflectionTestUtils.setField(gitHubService, "categoryTimeoutSeconds", 10L);
+    }
+
+    @AfterEach
+    void stopFakeApi() {
+        gitHubService.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void notModifiedCategoriesAreNotMapped() {
+        ActivityWatermarks watermarks = new ActivityWatermarks();
+        GitHubActivityFeed first = gitHubService.getNewActivities("octocat", "Hello-World", watermarks, 10);
+        assertEquals(1, first.getActivities().size());
+        assertEquals("c1", watermarks.getCommitSha());
+        assertTrue(first.isComplete());
+
+        // The cached commits page holds a commit these watermarks do not cover, but
+        // a 304 means the poller saw it already, so it is not read again
+        ActivityWatermarks stale = new ActivityWatermarks();
+        GitHubActivityFeed second = gitHubService.getNewActivities("octocat", "Hello-World", stale, 10);
+
+        assertEquals(304, lastStatus.get(REPOSITORY_PATH + "/commits"));
+        assertTrue(second.getActivities().isEmpty());
+        assertEquals(Set.of("commits", "pull requests", "issues", "releases"),
+                Set.copyOf(second.getNotModifiedCategories()));
+        assertFalse(stale.hasAny());
+        assertFalse(second.isComplete());
+    }
+
+    @Test
+    void onlyChangedCategoriesAreMapped() {
+        ActivityWatermarks watermarks = new ActivityWatermarks();
+        gitHubService.getNewActivities("octocat", "Hello-World", watermarks, 10);
+
+        commitsVersion = 2;
+        GitHubActivityFeed feed = gitHubService.getNewActivities("octocat", "Hello-World", watermarks, 10);
+
+        assertEquals(200, lastStatus.get(REPOSITORY_PATH + "/commits"));
+        assertEquals(List.of("Commit c2"), feed.getActivities().stream().map(GitHubActivity::getTitle).toList());
+        assertEquals("c2", watermarks.getCommitSha());
+        assertFalse(feed.getNotModifiedCategories().contains("commits"));
+        assertEquals(3, feed.getNotModifiedCategories().size());
+    }
+
+    @Test
+    void partialFeedIsNotComplete() {
+        assertTrue(new GitHubActivityFeed(List.of(), false, List.of()).isComplete());
+        assertFalse(new GitHubActivityFeed(List.of(), true, List.of("releases")).isComplete());
+
+        GitHubActivityFeed notModified = new GitHubActivityFeed(List.of(), false, List.of());
+        notModified.setNotModifiedCategories(List.of("issues"));
+        assertFalse(notModified.isComplete());
+    }
+
+    /**
+     * Answers like GitHub: every page carries an ETag, and a request that
+     * sends the current one back gets an empty 304
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String body = switch (path) {
+            case REPOSITORY_PATH -> REPOSITORY;
+            case REPOSITORY_PATH + "/commits" -> commitsVersion == 1
+                    ? "[" + commit("c1", "2024-05-04T10:00:00Z") + "]"
+                    : "[" + commit("c2", "2024-05-05T10:00:00Z") + "," + commit("c1", "2024-05-04T10:00:00Z") + "]";
+            case REPOSITORY_PATH + "/pulls", REPOSITORY_PATH + "/issues", REPOSITORY_PATH + "/releases" -> "[]";
+            default -> null;
+        };
+        if (body == null) {
+            lastStatus.put(path, 404);
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Cache-Control", "private, max-age=60");
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            lastStatus.put(path, 304);
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        lastStatus.put(path, 200);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String commit(String sha, String date) {
+        return COMMIT.formatted(sha, date);
+    }
+}
@@ -0,0 +1,153 @@
+package com.saas.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saas.app.exception.WebhookSignatureException;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.repository.RepositoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks webhook signature verification, and that only deliveries with
+ * activity not seen before notify subscribers.
+ */
+class GitHubWebhookServiceTest {
+
+    private static final String SECRET = "It's a Secret to Everybody";
+
+    private RepositoryRepository repositoryRepository;
+    private ActivityService activityService;
+    private NotificationService notificationService;
+    private GitHubWebhookService webhookService;
+    private GitHubRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryRepository = mock(RepositoryRepository.class);
+        activityService = mock(ActivityService.class);
+        notificationService = mock(NotificationService.class);
+        webhookService = new GitHubWebhookService(repositoryRepository, activityService,
+                mock(ActivityCache.class), notificationService, new ObjectMapper());
+        ReflectionTestUtils.setField(webhookService, "webhookSecret", SECRET);
+
+        repository = new GitHubRepository("octocat", "Hello-World");
+        repository.getWatermarks().setCommitSha("old");
+        when(repositoryRepository.findByOwnerIgnoreCaseAndNameIgnoreCase("octocat", "Hello-World"))
+                .thenReturn(Optional.of(repository));
+    }
+
+    @Test
+    void acceptsValidSignature() {
+        byte[] payload = "{\"zen\":\"Keep it logically awesome.\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(0, webhookService.handle("ping", sign(SECRET, payload), payload));
+    }
+
+    @Test
+    void onlyActivityEventsMakeARepositoryWebhookDriven() {
+        byte[] ping = """
+                {"zen": "Design for failure.", "hook": {"events": ["push"]},
+                 "repository": {"full_name": "octocat/Hello-World", "default_branch": "main"}}
+                """.getBytes(StandardCharsets.UTF_8);
+        webhookService.handle("ping", sign(SECRET, ping), ping);
+        webhookService.handle("star", sign(SECRET, ping), ping);
+        assertFalse(repository.isWebhookDriven());
+        verify(repositoryRepository, never()).save(any());
+
+        byte[] payload = push(1);
+        when(activityService.record(eq(repository), anyList())).thenReturn(0);
+        webhookService.handle("push", sign(SECRET, payload), payload);
+        assertTrue(repository.isWebhookDriven());
+    }
+
+    @Test
+    void rejectsWrongSignature() {
+        byte[] payload = push(1);
+
+        assertThrows(WebhookSignatureException.class,
+                () -> webhookService.handle("push", sign("another secret", payload), payload));
+        assertThrows(WebhookSignatureException.class,
+                () -> webhookService.handle("push", null, payload));
+        verifyNoInteractions(activityService, notificationService);
+    }
+
+    @Test
+    void rejectsEverythingWithoutSecret() {
+        ReflectionTestUtils.setField(webhookService, "webhookSecret", "");
+        byte[] payload = push(1);
+
+        assertThrows(WebhookSignatureException.class,
+                () -> webhookService.handle("push", sign("", payload), payload));
+        verifyNoInteractions(activityService, notificationService);
+    }
+
+    @Test
+    void newActivityNotifiesSubscribers() {
+        byte[] payload = push(2);
+        when(activityService.record(eq(repository), anyList())).thenReturn(2);
+
+        assertEquals(2, webhookService.handle("push", sign(SECRET, payload), payload));
+        verify(notificationService).notifySubscribers(repository);
+        assertEquals("after", repository.getWatermarks().getCommitSha());
+        assertNotNull(repository.getLastActivityAt());
+    }
+
+    @Test
+    void redeliveryDoesNotNotifyAgain() {
+        byte[] payload = push(2);
+        when(activityService.record(eq(repository), anyList())).thenReturn(0);
+
+        assertEquals(0, webhookService.handle("push", sign(SECRET, payload), payload));
+        verify(notificationService, never()).notifySubscribers(any());
+        assertNull(repository.getLastActivityAt());
+    }
+
+    @Test
+    void fullPushLeavesCommitWatermarkToPolling() {
+        byte[] payload = push(20);
+        when(activityService.record(eq(repository), anyList())).thenReturn(20);
+
+        webhookService.handle("push", sign(SECRET, payload), payload);
+        assertEquals("old", repository.getWatermarks().getCommitSha());
+    }
+
+    private static byte[] push(int commits) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < commits; i++) {
+            if (i > 0) {
+                list.append(',');
+            }
+            list.append("""
+                    {"id": "c%1$d", "message": "Commit %1$d", "timestamp": "2024-05-04T10:00:00Z",
+                     "url": "https://github.com/octocat/Hello-World/commit/c%1$d", "author": {"username": "alice"}}
+                    """.formatted(i));
+        }
+        return """
+                {"ref": "refs/heads/main", "after": "after", "deleted": false,
+                 "repository": {"full_name": "octocat/Hello-World", "default_branch": "main"},
+                 "head_commit": {"timestamp": "2024-05-04T10:00:00Z"},
+                 "commits": [%s]}
+                """.formatted(list).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sign(String secret, byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.isEmpty() ? new byte[1] : secret.getBytes(StandardCharsets.UTF_8),
+                    "HmacSHA256"));
+            return "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
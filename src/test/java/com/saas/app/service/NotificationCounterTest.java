@@ -0,0 +1,308 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.NotificationCounter;
+import com.saas.app.model.RepoNotification;
+import com.saas.app.model.RepoSubscription;
+import com.saas.app.repository.NotificationCounterRepository;
+import com.saas.app.repository.NotificationRepository;
+import com.saas.app.repository.RepoSubscriptionRepository;
+import com.saas.app.repository.RepositoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Checks that the per-user unread counters follow the fan-out, coalescing
+ * and every way of marking notifications as read, through the REST endpoints.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notification-counter;DB_CLOSE_DELAY=-1",
+        "app.schedule.repository-check-minutes=1440",
+        "app.github.http-cache-dir=${java.io.tmpdir}/notification-counter-test/http-cache",
+        "app.github.tokens="})
+@AutoConfigureMockMvc
+class NotificationCounterTest {
+
+    private static final String ALICE = "alice@example.com";
+    private static final String BOB = "bob@example.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationCounterRepository counterRepository;
+
+    @Autowired
+    private RepoSubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private RepositoryRepository repositoryRepository;
+
+    private GitHubRepository hello;
+    private GitHubRepository spoon;
+
+    @BeforeEach
+    void subscribe() {
+        notificationRepository.deleteAll();
+        counterRepository.deleteAll();
+        subscriptionRepository.deleteAll();
+        repositoryRepository.deleteAll();
+
+        hello = repositoryRepository.save(new GitHubRepository("octocat", "Hello-World"));
+        spoon = repositoryRepository.save(new GitHubRepository("octocat", "Spoon-Knife"));
+        subscriptionRepository.saveAll(List.of(
+                new RepoSubscription(ALICE, hello, true),
+                new RepoSubscription(ALICE, spoon, true),
+                new RepoSubscription(BOB, hello, true)));
+    }
+
+    @Test
+    void fanOutCountsOneNotificationPerRepository() throws Exception {
+        notify(hello);
+        notify(spoon);
+
+        assertUnread(ALICE, 2);
+        assertUnread(BOB, 1);
+    }
+
+    @Test
+    void coalescedActivityIsNotCountedAgain() throws Exception {
+        notify(hello);
+        notify(hello);
+
+        assertUnread(ALICE, 1);
+        assertUnread(BOB, 1);
+        List<RepoNotification> unread = notificationRepository.findUnread(ALICE);
+        assertEquals(1, unread.size());
+        assertEquals(2, unread.get(0).getEventCount());
+    }
+
+    @Test
+    void markingOneAsReadCountsItOnce() throws Exception {
+        notify(hello);
+        notify(spoon);
+        Long id = unreadAbout(ALICE, hello).getId();
+
+        mockMvc.perform(patch("/api/notifications/{id}/read", id).param("email", ALICE))
+                .andExpect(status().isOk());
+        assertUnread(ALICE, 1);
+
+        mockMvc.perform(patch("/api/notifications/{id}/read", id).param("email", ALICE))
+                .andExpect(status().isOk());
+        assertUnread(ALICE, 1);
+
+        // Another user's notification is not found and leaves both counters alone
+        Long bobsId = unreadAbout(BOB, hello).getId();
+        mockMvc.perform(patch("/api/notifications/{id}/read", bobsId).param("email", ALICE))
+                .andExpect(status().isNotFound());
+        assertUnread(ALICE, 1);
+        assertUnread(BOB, 1);
+    }
+
+    @Test
+    void markingSeveralAsReadCountsOnlyUnreadOnes() throws Exception {
+        notify(hello);
+        notify(spoon);
+        String ids = unreadAbout(ALICE, hello).getId() + "," + unreadAbout(ALICE, spoon).getId();
+
+        mockMvc.perform(patch("/api/notifications/read").param("email", ALICE).param("ids", ids))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(2));
+        assertUnread(ALICE, 0);
+
+        mockMvc.perform(patch("/api/notifications/read").param("email", ALICE).param("ids", ids))
+                .andExpect(jsonPath("$.markedAsRead").value(0));
+        assertUnread(ALICE, 0);
+        assertUnread(BOB, 1);
+    }
+
+    @Test
+    void markingUpToACursorOrTimeCountsTheMarkedOnes() throws Exception {
+        notify(hello);
+        notify(spoon);
+        long cursor = unreadAbout(ALICE, hello).getCursor();
+
+        mockMvc.perform(patch("/api/notifications/read-before")
+                        .param("email", ALICE).param("cursor", Long.toString(cursor)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(1));
+        assertUnread(ALICE, 1);
+
+        String later = ZonedDateTime.now().plusMinutes(1).toOffsetDateTime().toString();
+        mockMvc.perform(patch("/api/notifications/read-before").param("email", ALICE).param("before", later))
+                .andExpect(jsonPath("$.markedAsRead").value(1));
+        assertUnread(ALICE, 0);
+
+        mockMvc.perform(patch("/api/notifications/read-before").param("email", ALICE))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void markingSeveralAsReadSkipsOtherUsersIds() throws Exception {
+        notify(hello);
+        String ids = unreadAbout(ALICE, hello).getId() + "," + unreadAbout(BOB, hello).getId();
+
+        mockMvc.perform(patch("/api/notifications/read").param("email", ALICE).param("ids", ids))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(1));
+        assertUnread(ALICE, 0);
+        assertUnread(BOB, 1);
+    }
+
+    @Test
+    void markingMoreThanTheIdLimitAtOnceIsRejected() throws Exception {
+        notify(hello);
+        long id = unreadAbout(ALICE, hello).getId();
+
+        mockMvc.perform(patch("/api/notifications/read").param("email", ALICE)
+                        .param("ids", idsFrom(id, NotificationService.MAX_IDS_PER_REQUEST + 1)))
+                .andExpect(status().isBadRequest());
+        assertUnread(ALICE, 1);
+
+        mockMvc.perform(patch("/api/notifications/read").param("email", ALICE)
+                        .param("ids", idsFrom(id, NotificationService.MAX_IDS_PER_REQUEST)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(1));
+        assertUnread(ALICE, 0);
+    }
+
+    @Test
+    void cursorCoversItsNotificationWhileBeforeStopsShortOfIt() throws Exception {
+        notify(hello);
+        RepoNotification notification = unreadAbout(ALICE, hello);
+        String seenAt = notification.getLastSeenAt().toOffsetDateTime().toString();
+
+        mockMvc.perform(patch("/api/notifications/read-before").param("email", ALICE).param("before", seenAt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(0));
+        assertUnread(ALICE, 1);
+
+        mockMvc.perform(patch("/api/notifications/read-before")
+                        .param("email", ALICE).param("cursor", Long.toString(notification.getCursor())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(1));
+        assertUnread(ALICE, 0);
+        assertUnread(BOB, 1);
+
+        mockMvc.perform(patch("/api/notifications/read-before").param("email", ALICE)
+                        .param("before", seenAt).param("cursor", Long.toString(notification.getCursor())))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cursorDoesNotCoverActivityCoalescedAfterIt() throws Exception {
+        notify(hello);
+        long cursor = unreadAbout(ALICE, hello).getCursor();
+        Thread.sleep(5);
+        notify(hello);
+
+        mockMvc.perform(patch("/api/notifications/read-before")
+                        .param("email", ALICE).param("cursor", Long.toString(cursor)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(0));
+        assertUnread(ALICE, 1);
+    }
+
+    @Test
+    void markingAllAsReadResetsTheCounter() throws Exception {
+        notify(hello);
+        notify(spoon);
+
+        mockMvc.perform(patch("/api/notifications/read-all").param("email", ALICE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedAsRead").value(2));
+        assertUnread(ALICE, 0);
+        assertUnread(BOB, 1);
+
+        // A new notification after reading counts from zero again
+        notify(hello);
+        assertUnread(ALICE, 1);
+    }
+
+    @Test
+    void clearingRemovesTheCounter() throws Exception {
+        notify(hello);
+
+        mockMvc.perform(delete("/api/notifications/clear").param("email", ALICE))
+                .andExpect(status().isOk());
+        assertTrue(counterRepository.findById(ALICE).isEmpty());
+        mockMvc.perform(get("/api/notifications/unread/count").param("email", ALICE))
+                .andExpect(jsonPath("$.unread").value(0));
+    }
+
+    @Test
+    void unreadCountIsNotModifiedWhileItStaysTheSame() throws Exception {
+        notify(hello);
+
+        mockMvc.perform(get("/api/notifications/unread/count").param("email", ALICE))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.unread").value(1));
+
+        // Coalesced activity leaves the count, and so the ETag, as it was
+        notify(hello);
+        mockMvc.perform(get("/api/notifications/unread/count").param("email", ALICE)
+                        .header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified());
+
+        notify(spoon);
+        mockMvc.perform(get("/api/notifications/unread/count").param("email", ALICE)
+                        .header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.unread").value(2));
+    }
+
+    private void notify(GitHubRepository repository) {
+        repository.setLastActivityAt(ZonedDateTime.now());
+        notificationService.notifySubscribers(repository);
+    }
+
+    /**
+     * Lists count ids as a request parameter, starting with the given one;
+     * the others belong to no notification
+     */
+    private static String idsFrom(long first, int count) {
+        return LongStream.range(0, count)
+                .mapToObj(i -> Long.toString(first + i * 1_000_000L))
+                .collect(Collectors.joining(","));
+    }
+
+    private RepoNotification unreadAbout(String email, GitHubRepository repository) {
+        return notificationRepository.findUnread(email).stream()
+                .filter(notification -> notification.getRepository().getId().equals(repository.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Checks the count the endpoint reports, and that the stored counter
+     * agrees with the unread notifications
+     */
+    private void assertUnread(String email, long expected) throws Exception {
+        mockMvc.perform(get("/api/notifications/unread/count").param("email", email))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unread").value(expected));
+        assertEquals(expected, counterRepository.findById(email).map(NotificationCounter::getUnread).orElse(0L));
+        assertEquals(expected, notificationRepository.countByEmailAndReadFalse(email));
+    }
+}
@@ -0,0 +1,181 @@
+package com.saas.app.service;
+
+import com.saas.app.SaasApplication;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.model.RepoNotification;
+import com.saas.app.model.RepoSubscription;
+import com.saas.app.repository.NotificationEventRepository;
+import com.saas.app.repository.NotificationRepository;
+import com.saas.app.repository.RepoSubscriptionRepository;
+import com.saas.app.repository.RepositoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares fan-out-on-write with fan-out-on-read notifications
+ * ({@code app.notifications.fan-out}): what writing a round of activity
+ * costs, and how long the notification reads take afterwards. Each mode
+ * runs in its own application context on its own H2 database.
+ *
+ * Excluded from the regular test run; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class NotificationFanOutBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFanOutBenchmark.class);
+
+    private static final int REPOSITORIES = 20;
+    private static final int SUBSCRIBERS = 250;
+    private static final int ROUNDS = 5;
+    private static final int READERS = 50;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareFanOutOnWriteWithFanOutOnRead() {
+        Result write = run("write");
+        Result read = run("read");
+
+        logger.info("{}", write);
+        logger.info("{}", read);
+
+        assertEquals((long) REPOSITORIES * SUBSCRIBERS, write.rows);
+        assertEquals((long) REPOSITORIES * ROUNDS, read.rows);
+        assertTrue(read.statements < write.statements);
+    }
+
+    private Result run(String fanOut) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SaasApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:fan-out-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "app.notifications.fan-out=" + fanOut,
+                        "app.schedule.repository-check-minutes=1440",
+                        "app.github.http-cache-dir=" + tempDir.resolve(fanOut),
+                        "app.github.tokens=")
+                .run();
+        try {
+            List<GitHubRepository> repositories = seed(context);
+            NotificationService notificationService = context.getBean(NotificationService.class);
+            Statistics statistics = context.getBean(EntityManagerFactory.class)
+                    .unwrap(SessionFactory.class).getStatistics();
+
+            Result result = new Result(fanOut);
+            statistics.clear();
+            long started = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (GitHubRepository repository : repositories) {
+                    repository.setLastActivityAt(ZonedDateTime.now());
+                    notificationService.notifySubscribers(repository);
+                }
+            }
+            result.writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            result.statements = statistics.getPrepareStatementCount();
+            result.rows = context.getBean(NotificationRepository.class).count()
+                    + context.getBean(NotificationEventRepository.class).count();
+
+            // Once to warm up, then measured
+            readAll(notificationService, result, false);
+            readAll(notificationService, result, true);
+            return result;
+        } finally {
+            context.close();
+        }
+    }
+
+    private List<GitHubRepository> seed(ConfigurableApplicationContext context) {
+        List<GitHubRepository> repositories = new ArrayList<>();
+        for (int i = 0; i < REPOSITORIES; i++) {
+            repositories.add(new GitHubRepository("octocat", "repo-" + i));
+        }
+        repositories = context.getBean(RepositoryRepository.class).saveAll(repositories);
+
+        List<RepoSubscription> subscriptions = new ArrayList<>();
+        for (int user = 0; user < SUBSCRIBERS; user++) {
+            for (GitHubRepository repository : repositories) {
+                subscriptions.add(new RepoSubscription(email(user), repository, true));
+            }
+        }
+        context.getBean(RepoSubscriptionRepository.class).saveAll(subscriptions);
+        return repositories;
+    }
+
+    private void readAll(NotificationService notificationService, Result result, boolean measure) {
+        for (int user = 0; user < READERS; user++) {
+            String email = email(user);
+
+            long started = System.nanoTime();
+            List<RepoNotification> unread = notificationService.getUnreadNotifications(email);
+            long listed = System.nanoTime();
+            long count = notificationService.getUnreadCount(email);
+            long counted = System.nanoTime();
+            notificationService.getUserNotifications(email, PageRequest.of(0, 20));
+            long paged = System.nanoTime();
+
+            assertEquals(REPOSITORIES, unread.size());
+            assertEquals(ROUNDS, unread.get(0).getEventCount());
+            assertEquals(REPOSITORIES, count);
+            if (measure) {
+                result.unreadMicros[user] = (listed - started) / 1000;
+                result.countMicros[user] = (counted - listed) / 1000;
+                result.pageMicros[user] = (paged - counted) / 1000;
+            }
+        }
+    }
+
+    private static String email(int user) {
+        return "user" + user + "@example.com";
+    }
+
+    private static class Result {
+
+        private final String fanOut;
+        private long writeMillis;
+        private long statements;
+        private long rows;
+        private final long[] unreadMicros = new long[READERS];
+        private final long[] countMicros = new long[READERS];
+        private final long[] pageMicros = new long[READERS];
+
+        Result(String fanOut) {
+            this.fanOut = fanOut;
+        }
+
+        private static String percentiles(long[] micros) {
+            long[] sorted = micros.clone();
+            Arrays.sort(sorted);
+            return String.format("p50 %d us, p95 %d us",
+                    sorted[sorted.length / 2], sorted[(int) Math.ceil(sorted.length * 0.95) - 1]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("fan-out=%s: %d fan-outs over %d subscriptions took %d ms, %d statements, %d rows; "
+                            + "unread list %s; unread count %s; first page %s",
+                    fanOut, REPOSITORIES * ROUNDS, REPOSITORIES * SUBSCRIBERS, writeMillis, statements, rows,
+                    percentiles(unreadMicros), percentiles(countMicros), percentiles(pageMicros));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.saas.app.service;
+
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.repository.RepositoryRepository;
+import com.saas.app.util.GitHubCircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the per-repository circuit, the adaptive check interval and how
+ * next checks spread over their interval.
+ */
+class PollingPolicyTest {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final Duration FAILURE_BACKOFF = Duration.ofMinutes(30);
+
+    private PollingPolicy policy;
+    private GitHubRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        policy = new PollingPolicy(1, 1440, 50, 0.5, FAILURE_THRESHOLD, 30, 168);
+        repository = new GitHubRepository("octocat", "Hello-World");
+        repository.setId(42L);
+    }
+
+    @Test
+    void failuresBelowTheThresholdKeepTheRepositoryDue() {
+        ZonedDateTime due = ZonedDateTime.now().minusMinutes(1);
+        repository.setNextCheckAt(due);
+
+        policy.scheduleAfterFailure(repository, "502 Bad Gateway");
+        policy.scheduleAfterFailure(repository, "502 Bad Gateway");
+
+        assertFalse(policy.isTripped(repository));
+        assertNull(repository.getCircuitOpenUntil());
+        assertEquals(due, repository.getNextCheckAt());
+        assertEquals("502 Bad Gateway", repository.getLastError());
+    }
+
+    @Test
+    void thresholdOpensTheCircuit() {
+        failTimes(FAILURE_THRESHOLD);
+
+        assertTrue(policy.isTripped(repository));
+        assertOpenFor(FAILURE_BACKOFF);
+        assertEquals(repository.getCircuitOpenUntil(), repository.getNextCheckAt());
+    }
+
+    @Test
+    void failureWhileHalfOpenDoublesTheBackoff() {
+        failTimes(FAILURE_THRESHOLD);
+
+        // Once the backoff ran out the repository is checked again; failing that check opens the circuit for longer
+        policy.scheduleAfterFailure(repository, "timeout");
+        assertTrue(policy.isTripped(repository));
+        assertOpenFor(FAILURE_BACKOFF.multipliedBy(2));
+
+        policy.scheduleAfterFailure(repository, "timeout");
+        assertOpenFor(FAILURE_BACKOFF.multipliedBy(4));
+
+        failTimes(20);
+        assertOpenFor(Duration.ofHours(168));
+    }
+
+    @Test
+    void successWhileHalfOpenClosesTheCircuit() {
+        failTimes(FAILURE_THRESHOLD + 1);
+
+        policy.scheduleNextCheck(repository, false);
+
+        assertFalse(policy.isTripped(repository));
+        assertEquals(0, repository.getFailureCount());
+        assertNull(repository.getCircuitOpenUntil());
+        assertNull(repository.getLastError());
+        assertTrue(repository.getNextCheckAt().isBefore(ZonedDateTime.now().plusMinutes(5)));
+    }
+
+    @Test
+    void failuresAreNotCountedWhileTheGlobalBreakerIsOpen() {
+        RepositoryRepository repositoryRepository = mock(RepositoryRepository.class);
+        when(repositoryRepository.findById(42L)).thenReturn(Optional.of(repository));
+        GitHubCircuitBreaker circuitBreaker = new GitHubCircuitBreaker(3, Duration.ofMinutes(1), Duration.ofMinutes(30));
+        RepoService repoService = new RepoService(repositoryRepository, mock(GitHubService.class),
+                mock(ActivityService.class), mock(ActivityCache.class), mock(GitHubEventsService.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), policy, circuitBreaker);
+
+        circuitBreaker.open("Secondary rate limit (429)");
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            repoService.recordFailure(repository, "429 Too Many Requests");
+        }
+        assertEquals(0, repository.getFailureCount());
+        verifyNoInteractions(repositoryRepository);
+
+        // Once GitHub as a whole is back, failures of the repository itself count again
+        ReflectionTestUtils.setField(circuitBreaker, "openUntil", Instant.now().minusSeconds(1));
+        repoService.recordFailure(repository, "404 Not Found");
+        assertEquals(1, repository.getFailureCount());
+    }
+
+    @Test
+    void quietChecksDoubleTheInterval() {
+        assertEquals(Duration.ofMinutes(1), policy.intervalFor(repository, 0));
+        assertEquals(Duration.ofMinutes(2), policy.intervalFor(repository, 1));
+        assertEquals(Duration.ofMinutes(8), policy.intervalFor(repository, 3));
+        assertEquals(Duration.ofMinutes(1440), policy.intervalFor(repository, 30));
+    }
+
+    @Test
+    void foundActivityResetsTheInterval() {
+        policy.scheduleNextCheck(repository, false);
+        policy.scheduleNextCheck(repository, false);
+        assertEquals(2, repository.getQuietChecks());
+
+        policy.scheduleNextCheck(repository, true);
+        assertEquals(0, repository.getQuietChecks());
+    }
+
+    @Test
+    void busyRepositoriesBackOffAtHalfTheRate() {
+        repository.setActivityCount(50);
+
+        assertEquals(Duration.ofMinutes(1), policy.intervalFor(repository, 1));
+        assertEquals(Duration.ofMinutes(2), policy.intervalFor(repository, 3));
+        assertEquals(Duration.ofMinutes(8), policy.intervalFor(repository, 6));
+    }
+
+    @Test
+    void dormantRepositoriesAreCheckedAtATenthOfTheirDormantTime() {
+        repository.setLastActivityAt(ZonedDateTime.now().minusDays(5));
+
+        Duration interval = policy.intervalFor(repository, 1);
+        assertTrue(interval.compareTo(Duration.ofHours(12)) >= 0
+                && interval.compareTo(Duration.ofHours(12).plusMinutes(1)) < 0, interval.toString());
+
+        // Activity that was just found is followed up at the minimum interval regardless
+        assertEquals(Duration.ofMinutes(1), policy.intervalFor(repository, 0));
+
+        repository.setLastActivityAt(ZonedDateTime.now().minusDays(100));
+        assertEquals(Duration.ofMinutes(1440), policy.intervalFor(repository, 1));
+    }
+
+    @Test
+    void nextSlotStaysWithinTheJitterWindow() {
+        ZonedDateTime now = ZonedDateTime.now();
+        Duration interval = Duration.ofMinutes(60);
+
+        for (long id = 1; id <= 100; id++) {
+            repository.setId(id);
+            ZonedDateTime slot = policy.nextSlot(repository, now, interval);
+            assertFalse(slot.isBefore(now.plusMinutes(30)), slot.toString());
+            assertFalse(slot.isAfter(now.plusMinutes(90)), slot.toString());
+        }
+    }
+
+    @Test
+    void nextSlotKeepsThePhaseOfARepository() {
+        ZonedDateTime now = ZonedDateTime.now();
+        Duration interval = Duration.ofMinutes(60);
+        long phase = phaseOf(policy.nextSlot(repository, now, interval), interval);
+
+        for (int minutes = 7; minutes < 180; minutes += 7) {
+            ZonedDateTime slot = policy.nextSlot(repository, now.plusMinutes(minutes), interval);
+            assertEquals(phase, phaseOf(slot, interval));
+        }
+    }
+
+    @Test
+    void nextSlotsOfRepositoriesCheckedTogetherSpreadOverTheInterval() {
+        ZonedDateTime now = ZonedDateTime.now();
+        Duration interval = Duration.ofMinutes(60);
+        int[] perTenMinutes = new int[6];
+
+        for (long id = 1; id <= 600; id++) {
+            repository.setId(id);
+            long minutes = Duration.between(now.plusMinutes(30), policy.nextSlot(repository, now, interval)).toMinutes();
+            perTenMinutes[(int) Math.min(minutes / 10, 5)]++;
+        }
+        for (int count : perTenMinutes) {
+            assertTrue(count > 60 && count < 140, Arrays.toString(perTenMinutes));
+        }
+    }
+
+    @Test
+    void withoutJitterTheNextCheckIsOneIntervalAway() {
+        PollingPolicy exact = new PollingPolicy(1, 1440, 50, 0, FAILURE_THRESHOLD, 30, 168);
+        ZonedDateTime now = ZonedDateTime.now();
+
+        assertEquals(now.plusMinutes(60), exact.nextSlot(repository, now, Duration.ofMinutes(60)));
+    }
+
+    private void failTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            policy.scheduleAfterFailure(repository, "502 Bad Gateway");
+        }
+    }
+
+    private void assertOpenFor(Duration expected) {
+        Duration left = Duration.between(ZonedDateTime.now(), repository.getCircuitOpenUntil());
+        assertTrue(left.compareTo(expected) <= 0 && left.compareTo(expected.minusSeconds(5)) > 0,
+                "Open for " + left + ", expected " + expected);
+    }
+
+    private static long phaseOf(ZonedDateTime slot, Duration interval) {
+        return Math.floorMod(slot.toInstant().toEpochMilli(), interval.toMillis());
+    }
+}
@@ -0,0 +1,186 @@
+package com.saas.app.service;
+
+import com.saas.app.SaasApplication;
+import com.saas.app.model.GitHubRepository;
+import com.saas.app.repository.RepositoryRepository;
+import com.saas.app.repository.SchedulerNodeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two application contexts against one H2 database, as two nodes would.
+ */
+class ShardCoordinatorTest {
+
+    private static final int REPOSITORIES = 200;
+
+    // Short enough to wait out, long enough to outlast stopping the second node
+    private static final int SECOND_NODE_LEASE_SECONDS = 3;
+
+    private static final int HEARTBEAT_SECONDS = 1;
+
+    @TempDir
+    Path tempDir;
+
+    private String databaseUrl;
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeEach
+    void startNodes() {
+        databaseUrl = "jdbc:h2:mem:shards-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        first = startNode("first", 300);
+        second = startNode("second", SECOND_NODE_LEASE_SECONDS);
+
+        RepositoryRepository repositories = first.getBean(RepositoryRepository.class);
+        List<GitHubRepository> created = new ArrayList<>();
+        for (int i = 0; i < REPOSITORIES; i++) {
+            created.add(new GitHubRepository("octocat", "repo-" + i));
+        }
+        repositories.saveAll(created);
+
+        // The first node joined before the second one existed
+        coordinator(first).heartbeat();
+        coordinator(second).heartbeat();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (second != null && second.isActive()) {
+            second.close();
+        }
+        first.close();
+    }
+
+    @Test
+    void eachRepositoryIsClaimedByExactlyOneNode() {
+        assertEquals(2, coordinator(first).getLiveNodes().size());
+
+        Set<Long> claimedByFirst = claimAll(first);
+        Set<Long> claimedBySecond = claimAll(second);
+
+        assertFalse(claimedByFirst.isEmpty());
+        assertFalse(claimedBySecond.isEmpty());
+        assertTrue(claimedByFirst.stream().noneMatch(claimedBySecond::contains));
+        assertEquals(REPOSITORIES, claimedByFirst.size() + claimedBySecond.size());
+    }
+
+    @Test
+    void remainingNodeTakesOverWhenOtherLeaves() {
+        second.close();
+        coordinator(first).heartbeat();
+
+        assertEquals(1, coordinator(first).getLiveNodes().size());
+        assertEquals(REPOSITORIES, claimAll(first).size());
+    }
+
+    @Test
+    void leasesOfVanishedNodeAreRespectedUntilTheyExpire() {
+        Set<Long> claimedBySecond = claimAll(second);
+
+        // The second node disappears without deregistering, e.g. after a crash
+        String secondNode = coordinator(second).getNodeId();
+        second.close();
+        first.getBean(SchedulerNodeRepository.class).deleteById(secondNode);
+        coordinator(first).heartbeat();
+
+        Set<Long> claimedByFirst = claimAll(first);
+        assertTrue(claimedByFirst.stream().noneMatch(claimedBySecond::contains));
+        assertEquals(REPOSITORIES - claimedBySecond.size(), claimedByFirst.size());
+    }
+
+    @Test
+    void leasesOfVanishedNodeAreTakenOverOnceTheyExpire() throws InterruptedException {
+        Set<Long> claimedBySecond = claimAll(second);
+        assertFalse(claimedBySecond.isEmpty());
+
+        String secondNode = coordinator(second).getNodeId();
+        second.close();
+        first.getBean(SchedulerNodeRepository.class).deleteById(secondNode);
+        coordinator(first).heartbeat();
+
+        TimeUnit.MILLISECONDS.sleep(TimeUnit.SECONDS.toMillis(SECOND_NODE_LEASE_SECONDS) + 500);
+
+        Set<Long> claimedByFirst = claimAll(first);
+        assertTrue(claimedByFirst.containsAll(claimedBySecond));
+        assertEquals(REPOSITORIES, claimedByFirst.size());
+    }
+
+    @Test
+    void heartbeatKeepsGoingWhileEverySchedulerThreadIsBusy() throws InterruptedException {
+        ThreadPoolTaskScheduler scheduler = first.getBean(ThreadPoolTaskScheduler.class);
+        int threads = scheduler.getScheduledThreadPoolExecutor().getCorePoolSize();
+        CountDownLatch busy = new CountDownLatch(threads);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Stands in for long repository and organization runs
+            for (int i = 0; i < threads; i++) {
+                scheduler.execute(() -> {
+                    busy.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+            ZonedDateTime before = heartbeatOf(first);
+            TimeUnit.SECONDS.sleep(3 * HEARTBEAT_SECONDS);
+            assertTrue(heartbeatOf(first).isAfter(before));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private ZonedDateTime heartbeatOf(ConfigurableApplicationContext context) {
+        return context.getBean(SchedulerNodeRepository.class)
+                .findById(coordinator(context).getNodeId())
+                .orElseThrow()
+                .getHeartbeatAt();
+    }
+
+    private ConfigurableApplicationContext startNode(String name, int leaseSeconds) {
+        return new SpringApplicationBuilder(SaasApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + databaseUrl,
+                        "app.cluster.lease-seconds=" + leaseSeconds,
+                        "app.cluster.heartbeat-seconds=" + HEARTBEAT_SECONDS,
+                        "app.schedule.repository-check-minutes=1440",
+                        "app.github.http-cache-dir=" + tempDir.resolve(name),
+                        "app.github.tokens=")
+                .run();
+    }
+
+    private ShardCoordinator coordinator(ConfigurableApplicationContext context) {
+        return context.getBean(ShardCoordinator.class);
+    }
+
+    private Set<Long> claimAll(ConfigurableApplicationContext context) {
+        List<GitHubRepository> repositories = context.getBean(RepositoryRepository.class).findAll();
+        return coordinator(context).claimRepositories(repositories).stream()
+                .map(GitHubRepository::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+}
@@ -0,0 +1,140 @@
+package com.saas.app.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks when the global circuit breaker opens, that a failure right after
+ * a pause (half-open) opens it again for longer, and that a success closes it.
+ */
+class GitHubCircuitBreakerTest {
+
+    private static final Duration PAUSE = Duration.ofMinutes(1);
+
+    private GitHubCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new GitHubCircuitBreaker(3, PAUSE, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void serverErrorsInARowOpenTheBreaker() throws IOException {
+        respond(503);
+        respond(502);
+        respond(200);
+        respond(500);
+        respond(503);
+        assertFalse(breaker.isOpen());
+
+        respond(503);
+        assertTrue(breaker.isOpen());
+        assertTrue(breaker.getReason().contains("3 server errors"));
+        assertPausedFor(PAUSE);
+    }
+
+    @Test
+    void secondaryRateLimitOpensTheBreakerForRetryAfter() throws IOException {
+        respond(403, "Retry-After", "120");
+
+        assertTrue(breaker.isOpen());
+        assertPausedFor(Duration.ofSeconds(120));
+    }
+
+    @Test
+    void primaryRateLimitIsLeftToTheTokenPool() throws IOException {
+        respond(403, "X-RateLimit-Remaining", "0");
+
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void failureAfterThePauseOpensTheBreakerForLonger() throws IOException {
+        breaker.open("test");
+        assertPausedFor(PAUSE);
+
+        // A response still in flight when the breaker opened does not close it
+        respond(200);
+        endPause();
+        assertFalse(breaker.isOpen());
+
+        // Half-open: the first failures after the pause open it again, for twice as long
+        breaker.recordFailure("connection refused");
+        breaker.recordFailure("connection refused");
+        breaker.recordFailure("connection refused");
+        assertTrue(breaker.isOpen());
+        assertTrue(breaker.getReason().contains("connection refused"));
+        assertPausedFor(PAUSE.multipliedBy(2));
+
+        endPause();
+        breaker.open("test");
+        assertPausedFor(PAUSE.multipliedBy(4));
+
+        // The pause never grows beyond the maximum
+        for (int i = 0; i < 5; i++) {
+            endPause();
+            breaker.open("test");
+        }
+        assertPausedFor(Duration.ofMinutes(30));
+    }
+
+    @Test
+    void successAfterThePauseClosesTheBreaker() throws IOException {
+        breaker.open("test");
+        endPause();
+        breaker.open("test");
+        assertPausedFor(PAUSE.multipliedBy(2));
+
+        endPause();
+        respond(200);
+        assertFalse(breaker.isOpen());
+
+        // Closed again, so the next trip starts over at the base pause
+        breaker.open("test");
+        assertPausedFor(PAUSE);
+    }
+
+    private void respond(int code, String... headers) throws IOException {
+        Request request = new Request.Builder().url("https://api.github.com/repos/octocat/Hello-World").build();
+        Response.Builder response = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("")
+                .body(ResponseBody.create("", null));
+        for (int i = 0; i < headers.length; i += 2) {
+            response.header(headers[i], headers[i + 1]);
+        }
+
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(request)).thenReturn(response.build());
+        breaker.intercept(chain).close();
+    }
+
+    /**
+     * Lets the current pause run out without waiting for it
+     */
+    private void endPause() {
+        ReflectionTestUtils.setField(breaker, "openUntil", Instant.now().minusSeconds(1));
+    }
+
+    private void assertPausedFor(Duration expected) {
+        Duration left = Duration.between(Instant.now(), breaker.getOpenUntil());
+        assertTrue(left.compareTo(expected) <= 0 && left.compareTo(expected.minusSeconds(5)) > 0,
+                "Paused for " + left + ", expected " + expected);
+    }
+}